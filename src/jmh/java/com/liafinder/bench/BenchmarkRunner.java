@@ -0,0 +1,27 @@
+package com.liafinder.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the pipeline benchmarks with the GC profiler (allocation rate and
+ * normalized bytes/op next to throughput) and writes target/jmh-result.json.
+ * Any JMH command line option can be passed, e.g. a benchmark regex or -f 1.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json");
+        if (cli.getIncludes().isEmpty())
+            options.include("com\\.liafinder\\..*Benchmark");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+package com.liafinder.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.liafinder.config.AppConfig;
+import com.liafinder.config.ConfigLoader;
+import com.liafinder.model.Listing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded JobTech response ({@code fixtures/jobtech-sample.json}) scaled to
+ * any number of hits. Copies get unique ids and URLs so deduplication sees
+ * them as distinct ads, except where duplicates are asked for.
+ */
+public final class Fixtures {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String SAMPLE = "/fixtures/jobtech-sample.json";
+
+    private Fixtures() {
+    }
+
+    /** config.yaml from the working directory (the project root when run as documented). */
+    public static AppConfig config() {
+        try {
+            return ConfigLoader.loadConfig("config.yaml");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** A JobTech search response body with {@code hits} hits. */
+    public static byte[] response(int hits) {
+        return response(hits, "");
+    }
+
+    /** Same, with every ad id (and URL) starting with {@code idPrefix}, so different responses hold different ads. */
+    public static byte[] response(int hits, String idPrefix) {
+        return response(hits, idPrefix, 0, hits);
+    }
+
+    /** Hits {@code first} to {@code first + hits} of a search with {@code total} results, as one page. */
+    public static byte[] response(int hits, String idPrefix, int first, int total) {
+        ObjectNode root = sample();
+        ArrayNode sampleHits = (ArrayNode) root.get("hits");
+        ArrayNode scaled = mapper.createArrayNode();
+        for (int i = first; i < first + hits; i++) {
+            ObjectNode hit = sampleHits.get(i % sampleHits.size()).deepCopy();
+            String id = idPrefix + hit.path("id").asText() + "-" + i;
+            hit.put("id", id);
+            if (!hit.path("webpage_url").asText().isEmpty())
+                hit.put("webpage_url", "https://arbetsformedlingen.se/platsbanken/annonser/" + id);
+            scaled.add(hit);
+        }
+        root.set("hits", scaled);
+        root.putObject("total").put("value", total);
+        try {
+            return mapper.writeValueAsBytes(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Unfiltered listings built from the sample hits; every
+     * {@code duplicateEvery}-th listing repeats an earlier URL (0 = none).
+     */
+    public static List<Listing> listings(int count, int duplicateEvery) {
+        ArrayNode sampleHits = (ArrayNode) sample().get("hits");
+        List<Listing> listings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            JsonNode hit = sampleHits.get(i % sampleHits.size());
+            JsonNode desc = hit.path("description");
+            String description = desc.isObject() ? desc.path("text").asText("") : desc.asText("");
+            int n = (duplicateEvery > 0 && i > 0 && i % duplicateEvery == 0) ? i / 2 : i;
+            Listing l = new Listing(hit.path("headline").asText(), hit.path("employer").path("name").asText(),
+                    hit.path("workplace_address").path("municipality").asText(),
+                    "https://arbetsformedlingen.se/platsbanken/annonser/" + hit.path("id").asText() + "-" + n,
+                    description, "JobTech");
+            l.id = hit.path("id").asText() + "-" + n;
+            listings.add(l);
+        }
+        return listings;
+    }
+
+    /** parseResponse reports per-response filter counts on stdout; keep that out of the measurements. */
+    public static PrintStream silenceStdout() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    private static ObjectNode sample() {
+        try (InputStream in = Fixtures.class.getResourceAsStream(SAMPLE)) {
+            if (in == null)
+                throw new IllegalStateException("Missing fixture " + SAMPLE);
+            return (ObjectNode) mapper.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
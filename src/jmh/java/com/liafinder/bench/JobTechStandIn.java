@@ -0,0 +1,215 @@
+package com.liafinder.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the JobTech search API, for load tests without network
+ * or API key. {@code GET /search?q=..&limit=..&offset=..} answers with a page
+ * of the recorded sample scaled to {@code hits} ads, different ads per query,
+ * or with a recorded response file when one is given. Requests with
+ * {@code published-after} get {@code freshHits} ads never served before, like
+ * a daemon poll finding new ads. Latency, a share of very slow responses,
+ * and 503 and 429 rates are configurable, and ETag / If-None-Match is
+ * honoured so the HTTP cache can be exercised.
+ *
+ * <p>Standalone: {@code java -cp target/lia-finder-1.0-SNAPSHOT.jar
+ * com.liafinder.bench.JobTechStandIn --port 8089 --latency-ms 80}, then set
+ * {@code sources.jobtech.endpoint: http://localhost:8089/search}.
+ */
+public class JobTechStandIn implements Closeable {
+
+    /** Response shape and fault injection; rates are fractions of all requests. */
+    public record Settings(
+            int hits,
+            int freshHits,
+            long latencyMillis,
+            long jitterMillis,
+            double errorRate,
+            double throttleRate,
+            double slowRate,
+            long slowMillis,
+            Path recorded) {
+
+        public static Settings of(Map<String, String> args) {
+            String recorded = args.get("recorded");
+            return new Settings(
+                    Integer.parseInt(args.getOrDefault("hits", "100")),
+                    Integer.parseInt(args.getOrDefault("fresh-hits", "5")),
+                    Long.parseLong(args.getOrDefault("latency-ms", "50")),
+                    Long.parseLong(args.getOrDefault("jitter-ms", "25")),
+                    Double.parseDouble(args.getOrDefault("error-rate", "0")),
+                    Double.parseDouble(args.getOrDefault("throttle-rate", "0")),
+                    Double.parseDouble(args.getOrDefault("slow-rate", "0")),
+                    Long.parseLong(args.getOrDefault("slow-ms", "2000")),
+                    recorded != null ? Path.of(recorded) : null);
+        }
+    }
+
+    public final LongAdder requests = new LongAdder();
+    public final LongAdder errors = new LongAdder();
+    public final LongAdder throttled = new LongAdder();
+    public final LongAdder notModified = new LongAdder();
+    public final LongAdder slow = new LongAdder();
+    public final LongAdder bytes = new LongAdder();
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "jobtech-stand-in");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+    private final AtomicLong freshIds = new AtomicLong();
+    private final byte[] recordedBody;
+
+    /** Starts serving on the port; 0 picks a free one. */
+    public static JobTechStandIn start(int port, Settings settings) throws IOException {
+        JobTechStandIn standIn = new JobTechStandIn(port, settings);
+        standIn.server.start();
+        return standIn;
+    }
+
+    private JobTechStandIn(int port, Settings settings) throws IOException {
+        this.settings = settings;
+        this.recordedBody = settings.recorded() != null ? Files.readAllBytes(settings.recorded()) : null;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/search", this::handle);
+        // Handlers sleep to simulate latency, so each request needs its own thread
+        server.setExecutor(executor);
+    }
+
+    /** The URL to use as {@code sources.jobtech.endpoint}. */
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/search");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            Map<String, String> params = params(exchange.getRequestURI());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = settings.latencyMillis()
+                    + (settings.jitterMillis() > 0 ? random.nextLong(settings.jitterMillis() + 1) : 0);
+            if (random.nextDouble() < settings.slowRate()) {
+                slow.increment();
+                delay += settings.slowMillis();
+            }
+            if (delay > 0)
+                Thread.sleep(delay);
+
+            double roll = random.nextDouble();
+            if (roll < settings.errorRate()) {
+                errors.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (roll < settings.errorRate() + settings.throttleRate()) {
+                throttled.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+
+            byte[] body = body(params);
+            String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.increment();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            bytes.add(body.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] body(Map<String, String> params) {
+        if (recordedBody != null)
+            return recordedBody;
+        String q = params.getOrDefault("q", "");
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : settings.hits();
+        if (params.containsKey("published-after")) {
+            // New ads every time, as if they were published since the last poll
+            return Fixtures.response(Math.min(settings.freshHits(), limit), "n" + freshIds.incrementAndGet() + "-");
+        }
+        int offset = params.containsKey("offset") ? Integer.parseInt(params.get("offset")) : 0;
+        int hits = Math.max(0, Math.min(settings.hits() - offset, limit));
+        return bodies.computeIfAbsent(q + "#" + offset + "#" + hits, k -> Fixtures.response(hits,
+                "q" + Integer.toHexString(q.hashCode()) + "-", offset, settings.hits()));
+    }
+
+    private static Map<String, String> params(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null)
+            return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    public String report() {
+        return String.format("stand-in: %d requests, %d slow, %d 503, %d 429, %d 304, %.1f MB sent",
+                requests.sum(), slow.sum(), errors.sum(), throttled.sum(), notModified.sum(), bytes.sum() / 1e6);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** {@code --name value} pairs into a map, without the dashes. */
+    public static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--"))
+                throw new IllegalArgumentException("Expected --name value, got " + args[i]);
+            map.put(args[i].substring(2), args[i + 1]);
+        }
+        return map;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        JobTechStandIn standIn = start(Integer.parseInt(options.getOrDefault("port", "8089")), Settings.of(options));
+        System.out.println("JobTech stand-in at " + standIn.endpoint() + " (Ctrl+C to stop)");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(standIn.report());
+            standIn.close();
+        }));
+        Thread.currentThread().join();
+    }
+}
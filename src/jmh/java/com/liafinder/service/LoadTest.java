@@ -0,0 +1,159 @@
+package com.liafinder.service;
+
+import com.liafinder.bench.Fixtures;
+import com.liafinder.bench.JobTechStandIn;
+import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.LatencyHistogram;
+import com.liafinder.metrics.PipelineMetrics;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Runs the monitor and daemon flows against {@link JobTechStandIn} and reports
+ * throughput and p50/p99 latency, offline and without an API key. Uses
+ * config.yaml with the data directory in a temp dir and the JobTech endpoint
+ * pointed at the stand-in; fetch concurrency, rate limit, retries, hedging
+ * and caching can be overridden to compare settings:
+ *
+ * <pre>
+ * java -cp target/lia-finder-1.0-SNAPSHOT.jar com.liafinder.service.LoadTest \
+ *     --runs 10 --polls 20 --concurrency 6 --rps 0 --cache true --retries 2 --hedge true \
+ *     --hits 100 --latency-ms 50 --jitter-ms 25 --error-rate 0.02 --slow-rate 0.02 --slow-ms 2000
+ * </pre>
+ *
+ * {@code --endpoint URL} targets a stand-in started separately instead.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = JobTechStandIn.parseArgs(args);
+        int runs = Integer.parseInt(options.getOrDefault("runs", "10"));
+        int polls = Integer.parseInt(options.getOrDefault("polls", "20"));
+
+        JobTechStandIn standIn = null;
+        String endpoint = options.get("endpoint");
+        if (endpoint == null) {
+            standIn = JobTechStandIn.start(0, JobTechStandIn.Settings.of(options));
+            endpoint = standIn.endpoint().toString();
+        }
+
+        Path dataDir = Files.createTempDirectory("lia-loadtest");
+        AppConfig cfg = configure(Fixtures.config(), options, endpoint, dataDir);
+        System.out.println("Load test against " + endpoint + ", data in " + dataDir);
+
+        // Injected errors are counted in the report; keep the per-query messages out of it
+        PrintStream stdout = Fixtures.silenceStdout();
+        PrintStream stderr = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            report(stdout, "monitor", monitor(cfg, runs));
+            report(stdout, "daemon", daemon(cfg, polls));
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+            if (standIn != null) {
+                System.out.println(standIn.report());
+                standIn.close();
+            }
+        }
+    }
+
+    /** Totals of one flow over all its iterations. */
+    private static final class Totals {
+        final LatencyHistogram http = new LatencyHistogram();
+        final LatencyHistogram iterations = new LatencyHistogram();
+        long queries;
+        long failed;
+        long retries;
+        long hedged;
+        long listings; // accepted by the filters, before deduplication
+        long nanos;
+
+        /** Adds the iteration that just finished; the services recorded its counts in {@link PipelineMetrics}. */
+        void add(long iterationNanos) {
+            http.addAll(PipelineMetrics.httpLatency);
+            iterations.record(iterationNanos);
+            queries += PipelineMetrics.queries.sum();
+            failed += PipelineMetrics.failedQueries.sum();
+            retries += PipelineMetrics.retries.sum();
+            hedged += PipelineMetrics.hedged.sum();
+            listings += PipelineMetrics.accepted.sum();
+            nanos += iterationNanos;
+        }
+    }
+
+    /** What {@code Main} does in monitor mode: {@link MonitorPipeline}. */
+    private static Totals monitor(AppConfig cfg, int runs) throws Exception {
+        Totals totals = new Totals();
+        SearchProfile profile = SearchProfile.compile(cfg);
+        for (int i = 0; i < runs; i++) {
+            PipelineMetrics.reset();
+            long start = System.nanoTime();
+            MonitorPipeline.run(profile, 10);
+            totals.add(System.nanoTime() - start);
+        }
+        return totals;
+    }
+
+    /** Back-to-back daemon polls; the first is a full fetch, the others ask for ads published since. */
+    private static Totals daemon(AppConfig cfg, int polls) throws Exception {
+        Totals totals = new Totals();
+        DaemonService daemon = new DaemonService("config.yaml", cfg);
+        daemon.open();
+        try {
+            for (int i = 0; i < polls; i++) {
+                long start = System.nanoTime();
+                daemon.poll();
+                totals.add(System.nanoTime() - start);
+            }
+        } finally {
+            daemon.close();
+        }
+        return totals;
+    }
+
+    private static void report(PrintStream out, String flow, Totals t) {
+        double seconds = t.nanos / 1e9;
+        out.printf("%-8s %d iterations in %.2f s: %.1f requests/s, %.0f accepted ads/s, %d of %d queries failed%n",
+                flow, t.iterations.count(), seconds, t.http.count() / seconds, t.listings / seconds, t.failed,
+                t.queries);
+        out.printf("         HTTP p50 %.0f ms, p99 %.0f ms; per %s p50 %.0f ms, p99 %.0f ms; %d retries, %d hedged%n",
+                t.http.percentileMs(0.50), t.http.percentileMs(0.99), flow.equals("daemon") ? "poll" : "run",
+                t.iterations.percentileMs(0.50), t.iterations.percentileMs(0.99), t.retries, t.hedged);
+    }
+
+    private static AppConfig configure(AppConfig base, Map<String, String> options, String endpoint, Path dataDir) {
+        AppConfig.FetchConfig fetch = base.fetch();
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency",
+                String.valueOf(fetch != null ? fetch.maxConcurrency() : 6)));
+        double rps = Double.parseDouble(options.getOrDefault("rps",
+                String.valueOf(fetch != null ? fetch.requestsPerSecond() : 0)));
+        Integer retries = options.containsKey("retries") ? Integer.valueOf(options.get("retries"))
+                : fetch != null ? fetch.maxRetries() : null;
+        Boolean hedge = options.containsKey("hedge") ? Boolean.valueOf(options.get("hedge"))
+                : fetch != null ? fetch.hedge() : null;
+        AppConfig.CacheConfig cache = base.cache();
+        boolean cached = Boolean.parseBoolean(options.getOrDefault("cache",
+                String.valueOf(cache != null && cache.enabled())));
+
+        return new AppConfig(
+                base.search(),
+                base.lia(),
+                new AppConfig.OutputConfig(dataDir.toString(), dataDir.resolve("applications").toString(),
+                        base.output() != null ? base.output().templatesDir() : null),
+                base.linkedin(),
+                new AppConfig.FetchConfig(concurrency, rps, fetch != null ? fetch.requestTimeoutSeconds() : 0, retries,
+                        fetch != null ? fetch.retryBaseMillis() : 0, hedge, fetch != null ? fetch.breakerFailures() : 0,
+                        fetch != null ? fetch.breakerOpenSeconds() : 0),
+                new AppConfig.DaemonConfig(1, 1, 5, 0, null),
+                new AppConfig.CacheConfig(cached, cache != null ? cache.ttlMinutes() : 30, false,
+                        cache != null ? cache.scoreEntries() : 0),
+                Map.of("jobtech", new AppConfig.SourceConfig(true, 120, null, endpoint)),
+                base.weights(),
+                base.ranking());
+    }
+}
@@ -0,0 +1,45 @@
+package com.liafinder.service;
+
+import com.liafinder.bench.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/** Rendering one company's email and letter; the .docx goes to a null stream. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutreachBenchmark {
+    private OutreachService.Templates templates;
+    private final Map<String, String> values = Map.of(
+            "company", "Example Consulting AB",
+            "full_name", "Your Name",
+            "stack_hints", "Java, Spring Boot, React");
+
+    @Setup
+    public void setup() throws IOException {
+        templates = OutreachService.loadTemplates(Fixtures.config());
+    }
+
+    @Benchmark
+    public String renderEmail() {
+        return templates.email().render(values);
+    }
+
+    @Benchmark
+    public void renderLetterDocx() throws IOException {
+        OutreachService.writeLetter(templates.letter().render(values), OutputStream.nullOutputStream());
+    }
+}
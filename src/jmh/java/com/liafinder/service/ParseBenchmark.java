@@ -0,0 +1,50 @@
+package com.liafinder.service;
+
+import com.liafinder.bench.Fixtures;
+import com.liafinder.model.Listing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({ "10", "100", "1000" })
+    public int hits;
+
+    private byte[] body;
+    private SearchProfile profile;
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() {
+        body = Fixtures.response(hits);
+        profile = SearchProfile.compile(Fixtures.config());
+        stdout = Fixtures.silenceStdout();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public List<Listing> parseResponse() {
+        return JobSearchService.parseResponse(new ByteArrayInputStream(body), profile);
+    }
+}
@@ -0,0 +1,46 @@
+package com.liafinder.service;
+
+import com.liafinder.bench.Fixtures;
+import com.liafinder.model.Listing;
+import com.liafinder.model.ScoredListing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RankingBenchmark {
+    @Param({ "100", "1000", "10000" })
+    public int listings;
+
+    private SearchProfile profile;
+    private List<Listing> input;
+
+    @Setup
+    public void setup() {
+        profile = SearchProfile.compile(Fixtures.config());
+        input = Fixtures.listings(listings, 0);
+    }
+
+    @Benchmark
+    public List<ScoredListing> scoreListings() {
+        return RankingService.scoreListings(profile, input);
+    }
+
+    @Benchmark
+    public List<ScoredListing> topListings() {
+        return RankingService.topListings(profile, input, 10);
+    }
+}
@@ -0,0 +1,70 @@
+package com.liafinder.service;
+
+import com.liafinder.bench.Fixtures;
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.Listing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Term matching over one listing: the compiled matcher against the
+ * per-term {@code toLowerCase().contains} loop that containsAny used to be.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TermMatchBenchmark {
+    private List<Listing> listings;
+    private List<String> allTerms;
+    private TermMatcher matcher;
+    private TermMatcher.Hits hits;
+
+    @Setup
+    public void setup() {
+        AppConfig cfg = Fixtures.config();
+        listings = Fixtures.listings(6, 0);
+        matcher = TermMatcher.forConfig(cfg);
+        hits = matcher.newHits();
+        allTerms = new ArrayList<>(JobSearchService.EXCLUSION_TERMS);
+        allTerms.addAll(cfg.search().liaTerms());
+        allTerms.addAll(cfg.search().javaTerms());
+        if (cfg.linkedin() != null && cfg.linkedin().notLiaTerms() != null)
+            allTerms.addAll(cfg.linkedin().notLiaTerms());
+    }
+
+    @Benchmark
+    public void termMatcher(Blackhole bh) {
+        for (Listing l : listings) {
+            hits.clear();
+            matcher.scan(hits, l.title, TermMatcher.TITLE);
+            matcher.scan(hits, l.description, TermMatcher.DESCRIPTION);
+            bh.consume(hits.any(TermMatcher.Group.EXCLUSION));
+        }
+    }
+
+    @Benchmark
+    public void containsAnyBaseline(Blackhole bh) {
+        for (Listing l : listings) {
+            String combined = (l.title + "\n" + l.description).toLowerCase();
+            int found = 0;
+            for (String term : allTerms) {
+                if (combined.contains(term.toLowerCase()))
+                    found++;
+            }
+            bh.consume(found);
+        }
+    }
+}
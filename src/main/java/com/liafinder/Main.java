@@ -2,11 +2,18 @@ package com.liafinder;
 
 import com.liafinder.config.AppConfig;
 import com.liafinder.config.ConfigLoader;
+import com.liafinder.metrics.PipelineMetrics;
 import com.liafinder.model.Company;
 import com.liafinder.model.Profile;
+import com.liafinder.service.BatchService;
+import com.liafinder.service.DaemonService;
+import com.liafinder.service.MonitorPipeline;
 import com.liafinder.service.OutreachService;
+import com.liafinder.service.SearchProfile;
+import com.liafinder.service.SearchService;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
@@ -36,25 +43,17 @@ public class Main {
                 System.out.println("Mode: Monitor");
 
                 String apiKey = System.getenv("JOBTECH_API_KEY");
-                if (apiKey == null || apiKey.isEmpty()) {
+                boolean offline = config.cache() != null && config.cache().enabled() && config.cache().offline();
+                if (offline) {
+                    System.out.println("Offline: ranking from cached responses only.");
+                } else if (apiKey == null || apiKey.isEmpty()) {
                     System.out.println("\n[!] JOBTECH_API_KEY is missing!");
                     System.out.println("    Please set it in your Run Configuration -> Environment variables.");
                     System.out.println("    Example: JOBTECH_API_KEY=your_key_here");
                 }
 
-                List<com.liafinder.model.Listing> listings = com.liafinder.service.JobSearchService
-                        .fetchListings(config);
-                System.out.println("Found " + listings.size() + " listings.");
-
-                List<com.liafinder.model.ScoredListing> scored = com.liafinder.service.RankingService
-                        .scoreListings(config, listings);
-
-                System.out.println("\nTop Matches:");
-                for (int i = 0; i < Math.min(10, scored.size()); i++) {
-                    com.liafinder.model.ScoredListing sl = scored.get(i);
-                    System.out.printf("[%d] %s - %s (Score: %.1f)\n    URL: %s\n", i + 1, sl.title, sl.company,
-                            sl.score, sl.url);
-                }
+                MonitorPipeline.run(SearchProfile.compile(config), 10);
+                PipelineMetrics.writeSummary(config, "monitor");
 
             } else if ("outreach".equals(mode) || "2".equals(mode)) {
                 System.out.println("Mode: Outreach");
@@ -64,12 +63,22 @@ public class Main {
                 System.out.println("Loaded profile for: " + profile.person().get("full_name"));
 
                 // Actual outreach generation call
-                for (Company c : companies) {
-                    OutreachService.generateOutreach(config, c, profile);
-                }
+                OutreachService.generateAll(config, companies, profile);
+                PipelineMetrics.writeSummary(config, "outreach");
 
             } else if ("daemon".equals(mode) || "3".equals(mode)) {
-                System.out.println("Mode: Daemon (Not implemented yet)");
+                System.out.println("Mode: Daemon");
+                new DaemonService("config.yaml", config).run();
+
+            } else if ("search".equals(mode) || "4".equals(mode)) {
+                System.out.println("Mode: Search");
+                String query = args.length > 1 ? String.join(" ", List.of(args).subList(1, args.length)) : null;
+                SearchService.run("config.yaml", config, query);
+
+            } else if ("batch".equals(mode) || "5".equals(mode)) {
+                System.out.println("Mode: Batch");
+                BatchService.run(config, Path.of(args.length > 1 ? args[1] : "students"), 10);
+                PipelineMetrics.writeSummary(config, "batch");
 
             } else {
                 System.out.println("Unknown mode: " + mode);
@@ -86,13 +95,19 @@ public class Main {
         System.out.println("  1) Monitor LIA (run once)");
         System.out.println("  2) Outreach Builder (generate emails/letters)");
         System.out.println("  3) Monitor daemon (run continuously)");
-        System.out.print("Enter 1, 2 or 3: ");
+        System.out.println("  4) Search collected listings (no fetch)");
+        System.out.println("  5) Batch monitor for every student under students/");
+        System.out.print("Enter 1, 2, 3, 4 or 5: ");
 
         String choice = scanner.nextLine().trim();
         if ("2".equals(choice))
             return "outreach";
         if ("3".equals(choice))
             return "daemon";
+        if ("4".equals(choice))
+            return "search";
+        if ("5".equals(choice))
+            return "batch";
         return "monitor";
     }
 }
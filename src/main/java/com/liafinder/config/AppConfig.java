@@ -3,13 +3,25 @@ package com.liafinder.config;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
+import java.util.Map;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public record AppConfig(
         SearchConfig search,
         LiaConfig lia,
         OutputConfig output,
-        LinkedInConfig linkedin) {
+        LinkedInConfig linkedin,
+        FetchConfig fetch,
+        DaemonConfig daemon,
+        CacheConfig cache,
+        Map<String, SourceConfig> sources,
+        WeightsConfig weights,
+        RankingConfig ranking) {
+    /** Where the store, index and caches live: {@code output.data_dir}, or "data" when it is not set. */
+    public String dataDir() {
+        return (output != null && output.dataDir() != null) ? output.dataDir() : "data";
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record SearchConfig(
             List<String> locations,
@@ -18,7 +30,8 @@ public record AppConfig(
             @JsonProperty("java_terms") List<String> javaTerms,
             @JsonProperty("not_lia_terms") List<String> notLiaTerms,
             StrictConfig strict,
-            QueryConfig query) {
+            QueryConfig query,
+            @JsonProperty("fold_diacritics") Boolean foldDiacritics) {
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -27,10 +40,15 @@ public record AppConfig(
             @JsonProperty("must_contain_java") boolean mustContainJava) {
     }
 
+    /** Query building and paging; unset paging values fetch one page per query, as before paging existed. */
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record QueryConfig(
             @JsonProperty("max_per_query") int maxPerQuery,
-            @JsonProperty("add_remote_queries") boolean addRemoteQueries) {
+            @JsonProperty("add_remote_queries") boolean addRemoteQueries,
+            @JsonProperty("merge_queries") boolean mergeQueries,
+            @JsonProperty("max_pages") int maxPages,
+            @JsonProperty("min_yield") double minYield,
+            @JsonProperty("stale_pages") int stalePages) {
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -48,7 +66,77 @@ public record AppConfig(
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record OutputConfig(
             @JsonProperty("data_dir") String dataDir,
-            @JsonProperty("applications_dir") String applicationsDir) {
+            @JsonProperty("applications_dir") String applicationsDir,
+            @JsonProperty("templates_dir") String templatesDir) {
+    }
+
+    /** Concurrency, rate limit and failure handling of API requests; 0 or unset means the default. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record FetchConfig(
+            @JsonProperty("max_concurrency") int maxConcurrency,
+            @JsonProperty("requests_per_second") double requestsPerSecond,
+            @JsonProperty("request_timeout_seconds") int requestTimeoutSeconds,
+            @JsonProperty("max_retries") Integer maxRetries,
+            @JsonProperty("retry_base_millis") int retryBaseMillis,
+            Boolean hedge,
+            @JsonProperty("breaker_failures") int breakerFailures,
+            @JsonProperty("breaker_open_seconds") int breakerOpenSeconds) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record DaemonConfig(
+            @JsonProperty("poll_interval_minutes") int pollIntervalMinutes,
+            @JsonProperty("max_backoff_minutes") int maxBackoffMinutes,
+            @JsonProperty("top_n") int topN,
+            @JsonProperty("min_score") double minScore,
+            @JsonProperty("full_poll_hours") Integer fullPollHours) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record CacheConfig(
+            boolean enabled,
+            @JsonProperty("ttl_minutes") int ttlMinutes,
+            boolean offline,
+            @JsonProperty("score_entries") int scoreEntries) {
+    }
+
+    /**
+     * One entry under {@code sources:}; enabled is null when not set, so each
+     * source keeps its own default. endpoint overrides the URL of an API source.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record SourceConfig(
+            Boolean enabled,
+            @JsonProperty("timeout_seconds") int timeoutSeconds,
+            List<String> paths,
+            String endpoint) {
+    }
+
+    /** Scoring weights; unset ones keep their defaults. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record WeightsConfig(
+            @JsonProperty("lia_title") Double liaTitle,
+            @JsonProperty("lia_description") Double liaDescription,
+            @JsonProperty("java_title") Double javaTitle,
+            @JsonProperty("java_description") Double javaDescription,
+            @JsonProperty("not_lia") Double notLia,
+            @JsonProperty("target_year") Double targetYear,
+            @JsonProperty("target_start") Double targetStart,
+            @JsonProperty("target_end") Double targetEnd,
+            Double remote,
+            Double location,
+            @JsonProperty("target_company") Double targetCompany,
+            @JsonProperty("stack_hint") Double stackHint) {
+    }
+
+    /** How listings are ranked: rules, bm25 or blend; unset values keep their defaults. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record RankingConfig(
+            String mode,
+            @JsonProperty("bm25_weight") Double bm25Weight,
+            Double k1,
+            Double b,
+            @JsonProperty("title_boost") Double titleBoost) {
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
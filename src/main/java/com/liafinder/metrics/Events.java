@@ -0,0 +1,93 @@
+package com.liafinder.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom JFR events for the pipeline. Record with e.g.
+ * {@code java -XX:StartFlightRecording=filename=lia.jfr -jar ...} and look
+ * under the "LIA Finder" category in JDK Mission Control.
+ */
+public final class Events {
+    private Events() {
+    }
+
+    @Name("com.liafinder.HttpExchange")
+    @Label("HTTP Exchange")
+    @Category("LIA Finder")
+    @Description("One request to the listing API, from send until the body was consumed")
+    @StackTrace(false)
+    public static class HttpExchange extends Event {
+        @Label("URI")
+        public String uri;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Attempt")
+        @Description("0 for the first try, then 1 for the first retry and so on")
+        public int attempt;
+
+        @Label("Hedge")
+        @Description("A duplicate sent because the first request was slow")
+        public boolean hedge;
+    }
+
+    @Name("com.liafinder.ResponseParsed")
+    @Label("Response Parsed")
+    @Category("LIA Finder")
+    @Description("Filter stage counts for one API response")
+    @StackTrace(false)
+    public static class ResponseParsed extends Event {
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Hits")
+        public int hits;
+
+        @Label("Accepted")
+        public int accepted;
+
+        @Label("Dropped: Exclusion")
+        public int droppedExclusion;
+
+        @Label("Dropped: Wrong Title")
+        public int droppedWrongTitle;
+
+        @Label("Dropped: No LIA")
+        public int droppedNoLia;
+
+        @Label("Dropped: Too Early")
+        public int droppedTooEarly;
+    }
+
+    @Name("com.liafinder.Scoring")
+    @Label("Scoring")
+    @Category("LIA Finder")
+    @StackTrace(false)
+    public static class Scoring extends Event {
+        @Label("Listings")
+        public int listings;
+
+        @Label("Top K")
+        public int k;
+    }
+
+    @Name("com.liafinder.OutreachGenerated")
+    @Label("Outreach Generated")
+    @Category("LIA Finder")
+    @StackTrace(false)
+    public static class OutreachGenerated extends Event {
+        @Label("Company")
+        public String company;
+
+        @Label("Skipped (unchanged)")
+        public boolean skipped;
+    }
+}
@@ -0,0 +1,94 @@
+package com.liafinder.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram in milliseconds. Recording is lock-free;
+ * percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+    private static final long[] BOUNDS_MS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long ms = nanos / 1_000_000L;
+        int i = 0;
+        while (i < BOUNDS_MS.length && ms > BOUNDS_MS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** Adds everything recorded in {@code other}, e.g. to total per-run histograms over several runs. */
+    public void addAll(LatencyHistogram other) {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i].add(other.buckets[i].sum());
+        }
+        count.add(other.count.sum());
+        sumNanos.add(other.sumNanos.sum());
+        maxNanos.accumulateAndGet(other.maxNanos.get(), Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /** Upper bucket bound in ms for quantile q (0..1); the max for the overflow bucket. */
+    public double percentileMs(double q) {
+        long total = count.sum();
+        if (total == 0)
+            return 0.0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank)
+                return Math.min(BOUNDS_MS[i], maxNanos.get() / 1e6);
+        }
+        return maxNanos.get() / 1e6;
+    }
+
+    public void reset() {
+        for (LongAdder b : buckets) {
+            b.reset();
+        }
+        count.reset();
+        sumNanos.reset();
+        maxNanos.set(0);
+    }
+
+    public Map<String, Object> summary() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long total = count.sum();
+        out.put("count", total);
+        out.put("mean_ms", total == 0 ? 0.0 : sumNanos.sum() / 1e6 / total);
+        out.put("p50_ms", percentileMs(0.50));
+        out.put("p95_ms", percentileMs(0.95));
+        out.put("p99_ms", percentileMs(0.99));
+        out.put("max_ms", maxNanos.get() / 1e6);
+
+        Map<String, Long> bucketCounts = new LinkedHashMap<>();
+        for (int i = 0; i < buckets.length; i++) {
+            String label = i < BOUNDS_MS.length ? "le_" + BOUNDS_MS[i] : "gt_" + BOUNDS_MS[BOUNDS_MS.length - 1];
+            bucketCounts.put(label, buckets[i].sum());
+        }
+        out.put("buckets_ms", bucketCounts);
+        return out;
+    }
+}
@@ -0,0 +1,137 @@
+package com.liafinder.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.liafinder.config.AppConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and timings for one run (a monitor run, an outreach
+ * batch or one daemon poll). The services record into it; {@link #writeSummary}
+ * dumps it to {@code <data_dir>/run-metrics.json} and appends the same
+ * object as one line to {@code run-metrics.jsonl}.
+ */
+public final class PipelineMetrics {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static final LatencyHistogram httpLatency = new LatencyHistogram();
+    public static final LongAdder queries = new LongAdder();
+    public static final LongAdder extraPages = new LongAdder();
+    public static final LongAdder failedQueries = new LongAdder();
+    public static final LongAdder retries = new LongAdder();
+    public static final LongAdder hedged = new LongAdder();
+    public static final LongAdder circuitOpen = new LongAdder();
+    public static final LongAdder cacheHits = new LongAdder();
+    public static final LongAdder notModified = new LongAdder();
+    public static final LongAdder responseBytes = new LongAdder();
+    // Pages a timed-out source delivered after the run stopped taking them
+    public static final LongAdder latePages = new LongAdder();
+
+    public static final LongAdder hits = new LongAdder();
+    public static final LongAdder accepted = new LongAdder();
+    public static final LongAdder droppedExclusion = new LongAdder();
+    public static final LongAdder droppedWrongTitle = new LongAdder();
+    public static final LongAdder droppedNoLia = new LongAdder();
+    public static final LongAdder droppedTooEarly = new LongAdder();
+    public static final LongAdder duplicatesRemoved = new LongAdder();
+
+    public static final LongAdder listingsScored = new LongAdder();
+    public static final LongAdder scoresReused = new LongAdder();
+    public static final LongAdder scoringNanos = new LongAdder();
+
+    public static final LongAdder outreachGenerated = new LongAdder();
+    public static final LongAdder outreachSkipped = new LongAdder();
+    public static final LongAdder outreachNanos = new LongAdder();
+
+    private static volatile long runStartNanos = System.nanoTime();
+    private static volatile Instant runStart = Instant.now();
+
+    private PipelineMetrics() {
+    }
+
+    public static void reset() {
+        httpLatency.reset();
+        for (LongAdder a : new LongAdder[] { queries, extraPages, failedQueries, retries, hedged, circuitOpen,
+                cacheHits, notModified, responseBytes, latePages, hits, accepted, droppedExclusion, droppedWrongTitle,
+                droppedNoLia, droppedTooEarly, duplicatesRemoved, listingsScored, scoresReused, scoringNanos,
+                outreachGenerated, outreachSkipped, outreachNanos }) {
+            a.reset();
+        }
+        runStart = Instant.now();
+        runStartNanos = System.nanoTime();
+    }
+
+    public static Map<String, Object> summary(String mode) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("mode", mode);
+        out.put("started_at", runStart.toString());
+        out.put("wall_ms", (System.nanoTime() - runStartNanos) / 1e6);
+
+        Map<String, Object> fetch = new LinkedHashMap<>();
+        fetch.put("queries", queries.sum());
+        fetch.put("extra_pages", extraPages.sum());
+        fetch.put("failed_queries", failedQueries.sum());
+        fetch.put("retries", retries.sum());
+        fetch.put("hedged", hedged.sum());
+        fetch.put("circuit_open", circuitOpen.sum());
+        fetch.put("cache_hits", cacheHits.sum());
+        fetch.put("not_modified", notModified.sum());
+        fetch.put("response_bytes", responseBytes.sum());
+        fetch.put("late_pages", latePages.sum());
+        fetch.put("http_latency", httpLatency.summary());
+        out.put("fetch", fetch);
+
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("hits", hits.sum());
+        filter.put("dropped_exclusion", droppedExclusion.sum());
+        filter.put("dropped_wrong_title", droppedWrongTitle.sum());
+        filter.put("dropped_no_lia", droppedNoLia.sum());
+        filter.put("dropped_too_early", droppedTooEarly.sum());
+        filter.put("accepted", accepted.sum());
+        filter.put("duplicates_removed", duplicatesRemoved.sum());
+        out.put("filter", filter);
+
+        Map<String, Object> scoring = new LinkedHashMap<>();
+        scoring.put("listings", listingsScored.sum());
+        scoring.put("reused", scoresReused.sum());
+        scoring.put("time_ms", scoringNanos.sum() / 1e6);
+        out.put("scoring", scoring);
+
+        Map<String, Object> outreach = new LinkedHashMap<>();
+        outreach.put("generated", outreachGenerated.sum());
+        outreach.put("skipped", outreachSkipped.sum());
+        outreach.put("time_ms", outreachNanos.sum() / 1e6);
+        out.put("outreach", outreach);
+        return out;
+    }
+
+    /** Never throws: a metrics write failure must not fail the run. */
+    public static void writeSummary(AppConfig cfg, String mode) {
+        Path dir = Paths.get(cfg.dataDir());
+        try {
+            Files.createDirectories(dir);
+            Map<String, Object> summary = summary(mode);
+
+            Path tmp = Files.createTempFile(dir, "run-metrics", ".tmp");
+            mapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(tmp.toFile(), summary);
+            Files.move(tmp, dir.resolve("run-metrics.json"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+            Files.writeString(dir.resolve("run-metrics.jsonl"), mapper.writeValueAsString(summary) + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Failed to write run metrics: " + e.getMessage());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Listing {
+    public String id;
     public String title;
     public String company;
     public String location;
@@ -12,6 +13,12 @@ public class Listing {
     public String description;
     public String source;
 
+    // Title and description as one normalizer folds them; not part of the listing's data
+    transient Normalized normalized;
+
+    record Normalized(TextNormalizer by, String title, String description) {
+    }
+
     // Make it a class instead of record to allow mutability for scoring or easy
     // JSON deserialization if fields missing
     // or just stick to Record. Let's stick to Record if we can, but Score is added
@@ -31,4 +38,26 @@ public class Listing {
         this.description = description;
         this.source = source;
     }
+
+    /**
+     * The title as {@code n} normalizes it, computed on first use together
+     * with the description and cached, so filters and scorers that run one
+     * after another fold the text only once.
+     */
+    public String normalizedTitle(TextNormalizer n) {
+        return normalized(n).title();
+    }
+
+    public String normalizedDescription(TextNormalizer n) {
+        return normalized(n).description();
+    }
+
+    private Normalized normalized(TextNormalizer n) {
+        Normalized cached = normalized;
+        if (cached == null || cached.by() != n) {
+            cached = new Normalized(n, n.normalize(title), n.normalize(description));
+            normalized = cached;
+        }
+        return cached;
+    }
 }
@@ -13,5 +13,7 @@ public class ScoredListing extends Listing {
     
     public ScoredListing(Listing l) {
         super(l.title, l.company, l.location, l.url, l.description, l.source);
+        this.id = l.id;
+        this.normalized = l.normalized;
     }
 }
@@ -0,0 +1,102 @@
+package com.liafinder.model;
+
+import java.text.Normalizer;
+
+/**
+ * Folds text for matching, one char at a time so that scanners can apply it
+ * while they read: locale-independent case folding, fullwidth forms to ASCII,
+ * every kind of whitespace to a single space and, optionally, diacritics
+ * removed ("Lärande" and "larande" both become "larande"). Folding never
+ * turns one char into several, so ligatures such as "ﬁ" are kept as they are.
+ */
+public final class TextNormalizer {
+    /** What {@link #fold} returns for a char that is dropped, such as a combining accent. */
+    public static final char DROP = 0;
+
+    public static final TextNormalizer CASE = new TextNormalizer(false);
+    public static final TextNormalizer FULL = new TextNormalizer(true);
+
+    // Folds below U+3000 are looked up; the rest (mostly CJK) are computed when needed
+    private static final int TABLE_SIZE = 0x3000;
+
+    private final boolean foldDiacritics;
+    private final char[] table = new char[TABLE_SIZE];
+
+    private TextNormalizer(boolean foldDiacritics) {
+        this.foldDiacritics = foldDiacritics;
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            table[c] = foldChar((char) c);
+        }
+    }
+
+    public static TextNormalizer of(boolean foldDiacritics) {
+        return foldDiacritics ? FULL : CASE;
+    }
+
+    public boolean foldsDiacritics() {
+        return foldDiacritics;
+    }
+
+    /** The folded char: a space for whitespace, {@link #DROP} for a char to leave out. */
+    public char fold(char c) {
+        return c < TABLE_SIZE ? table[c] : foldChar(c);
+    }
+
+    /** Folds every char, collapses whitespace runs into one space and trims; null stays null. */
+    public String normalize(CharSequence text) {
+        if (text == null)
+            return null;
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = fold(text.charAt(i));
+            if (c == ' ') {
+                space = sb.length() > 0;
+            } else if (c != DROP) {
+                if (space)
+                    sb.append(' ');
+                sb.append(c);
+                space = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private char foldChar(char c) {
+        if (c == 0 || Character.isWhitespace(c) || Character.isSpaceChar(c))
+            return ' ';
+        if (Character.isSurrogate(c))
+            return c;
+        if (c >= '\uFF01' && c <= '\uFF5E') // Fullwidth ASCII
+            c = (char) (c - 0xFEE0);
+        // Upper then lower folds variants like 'ſ' and 'ς' together with their usual forms
+        c = Character.toLowerCase(Character.toUpperCase(c));
+        if (!foldDiacritics)
+            return c;
+        if (Character.getType(c) == Character.NON_SPACING_MARK)
+            return DROP;
+        switch (c) {
+            case 'ø':
+                return 'o';
+            case 'đ':
+                return 'd';
+            case 'ł':
+                return 'l';
+            case 'ħ':
+                return 'h';
+            default:
+                break;
+        }
+        // Letters with accents are all below U+2000 (Latin, Greek, Cyrillic, Latin Extended Additional)
+        if (c < '\u00C0' || c >= '\u2000')
+            return c;
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        if (decomposed.length() < 2 || !Character.isLetter(decomposed.charAt(0)))
+            return c;
+        for (int i = 1; i < decomposed.length(); i++) {
+            if (Character.getType(decomposed.charAt(i)) != Character.NON_SPACING_MARK)
+                return c;
+        }
+        return Character.toLowerCase(decomposed.charAt(0));
+    }
+}
@@ -0,0 +1,147 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.config.ConfigLoader;
+import com.liafinder.model.Listing;
+import com.liafinder.model.Profile;
+import com.liafinder.model.ScoredListing;
+import com.liafinder.store.ScoreCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Monitor run for a whole class of students at once. Every subdirectory of
+ * the batch directory with a config.yaml is one student (profile.yaml is
+ * optional and only names them; companies.yaml, if present, holds their
+ * target companies). The JobTech queries of all students are merged and each
+ * distinct query is fetched and parsed once; the shared listings are then
+ * filtered and ranked per student in parallel and written to
+ * {@code matches.txt} in the student's directory. The main config.yaml
+ * decides the endpoint, fetch limits, caches and data directory.
+ */
+public class BatchService {
+    private static final String RESULT_FILE = "matches.txt";
+
+    private record Student(String name, Path dir, SearchProfile profile) {
+    }
+
+    public static void run(AppConfig cfg, Path dir, int top) throws IOException, InterruptedException {
+        List<Student> students = loadStudents(dir);
+        if (students.isEmpty()) {
+            System.err.println("No student directories with a config.yaml under " + dir);
+            return;
+        }
+
+        // Same query from several students: fetch once, with the largest limit anyone asked for
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        for (Student s : students) {
+            for (String q : s.profile().queries()) {
+                limits.merge(q, s.profile().maxPerQuery(), Math::max);
+            }
+        }
+        List<String> queries = new ArrayList<>(limits.keySet());
+        System.out.println(students.size() + " students, " + queries.size() + " distinct queries.");
+
+        List<byte[]> bodies = JobTechSource.fetchBodies(cfg, queries, new ArrayList<>(limits.values()));
+        List<Listing> raw = new ArrayList<>();
+        int failed = 0;
+        for (byte[] body : bodies) {
+            if (body == null) {
+                failed++;
+                continue;
+            }
+            raw.addAll(JobSearchService.parseResponse(new ByteArrayInputStream(body), null));
+        }
+        List<Listing> shared = JobSearchService.removeDuplicates(raw);
+        System.out.println("Fetched " + shared.size() + " distinct listings (" + failed + " queries failed).");
+
+        // Keyed by scoring hash, so students with the same terms and weights share scores
+        ScoreCache scoreCache = ScoreCache.open(cfg);
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(students.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (Student s : students) {
+                results.add(pool.submit(() -> rankFor(s, shared, scoreCache, top)));
+            }
+            for (int i = 0; i < students.size(); i++) {
+                Student s = students.get(i);
+                try {
+                    int accepted = results.get(i).get();
+                    System.out.println("  " + s.name() + ": " + accepted + " matching listings -> "
+                            + s.dir().resolve(RESULT_FILE));
+                } catch (ExecutionException e) {
+                    System.err.println("  " + s.name() + " failed: " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (scoreCache != null)
+            scoreCache.save();
+    }
+
+    /** Filters and ranks the shared listings for one student and writes the result; returns the match count. */
+    private static int rankFor(Student s, List<Listing> shared, ScoreCache scoreCache, int top) throws IOException {
+        SearchProfile profile = s.profile();
+        List<Listing> listings = JobSearchService.filterListings(shared, profile);
+        List<ScoredListing> scored = RankingService.topListings(profile, Bm25.of(profile, listings), scoreCache,
+                listings, top);
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(s.dir().resolve(RESULT_FILE)))) {
+            out.println("Top Matches for " + s.name() + " (" + listings.size() + " listings passed the filters):");
+            for (int i = 0; i < scored.size(); i++) {
+                ScoredListing sl = scored.get(i);
+                out.printf("[%d] %s - %s (Score: %.1f)\n    URL: %s\n", i + 1, sl.title, sl.company, sl.score,
+                        sl.url);
+            }
+        }
+        return listings.size();
+    }
+
+    private static List<Student> loadStudents(Path dir) throws IOException {
+        List<Path> dirs;
+        try (Stream<Path> entries = Files.list(dir)) {
+            dirs = entries.filter(p -> Files.isRegularFile(p.resolve("config.yaml"))).sorted().toList();
+        }
+        List<Student> students = new ArrayList<>();
+        for (Path d : dirs) {
+            try {
+                AppConfig cfg = ConfigLoader.loadConfig(d.resolve("config.yaml").toString());
+                students.add(new Student(name(d), d, SearchProfile.compile(cfg, d)));
+            } catch (IOException e) {
+                System.err.println("Skipping " + d + ": " + e.getMessage());
+            }
+        }
+        return students;
+    }
+
+    /** The full name from the student's profile.yaml, or the directory name. */
+    private static String name(Path dir) {
+        Path profile = dir.resolve("profile.yaml");
+        if (Files.isRegularFile(profile)) {
+            try {
+                Profile p = ConfigLoader.loadProfile(profile.toString());
+                Object fullName = p.person() != null ? p.person().get("full_name") : null;
+                if (fullName != null)
+                    return fullName.toString();
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable " + profile + ": " + e.getMessage());
+            }
+        }
+        return dir.getFileName().toString();
+    }
+}
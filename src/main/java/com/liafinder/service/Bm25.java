@@ -0,0 +1,113 @@
+package com.liafinder.service;
+
+import com.liafinder.model.Listing;
+import com.liafinder.store.ListingIndex;
+
+/**
+ * BM25F relevance of a listing to the configured LIA and Java terms. Unlike
+ * the fixed rule points, a term counts for more the rarer it is across the
+ * stored listings, repeated mentions add less and less, and long
+ * descriptions are normalized against the average length. Title matches
+ * count {@code title_boost} times.
+ *
+ * <p>The inverse document frequency of every term is computed once, when the
+ * scorer is created, into an array indexed by {@link TermMatcher} pattern.
+ * Scoring a listing then only walks its matched patterns and allocates
+ * nothing. Create a new scorer when the corpus or the profile changes.
+ */
+public final class Bm25 {
+    private final double[] idf; // per pattern; 0 for patterns that are not LIA or Java terms
+    private final double k1;
+    private final double b;
+    private final double titleBoost;
+    private final double averageTitle;
+    private final double averageDescription;
+
+    private Bm25(SearchProfile.Ranking ranking, double[] idf, double averageTitle, double averageDescription) {
+        this.idf = idf;
+        this.k1 = ranking.k1();
+        this.b = ranking.b();
+        this.titleBoost = ranking.titleBoost();
+        this.averageTitle = Math.max(averageTitle, 1);
+        this.averageDescription = Math.max(averageDescription, 1);
+    }
+
+    /**
+     * Scorer with the statistics of every indexed listing, or null when the
+     * profile ranks by rules only. Document frequencies come from the same
+     * matcher as the term frequencies, so both overloads agree on a corpus.
+     */
+    public static Bm25 of(SearchProfile profile, ListingIndex index) {
+        if (!profile.ranking().usesBm25())
+            return null;
+        TermMatcher matcher = profile.matcher();
+        int n = index.size();
+        int[] df = index.patternFrequencies(matcher);
+        double[] idf = new double[df.length];
+        for (int p = 0; p < idf.length; p++) {
+            if (isQueryTerm(matcher, p))
+                idf[p] = idf(n, df[p]);
+        }
+        return new Bm25(profile.ranking(), idf, index.averageTitleLength(), index.averageDescriptionLength());
+    }
+
+    /**
+     * Scorer with the statistics of the given listings only, for ranking a
+     * batch without an index; null when the profile ranks by rules only.
+     */
+    public static Bm25 of(SearchProfile profile, Iterable<Listing> listings) {
+        if (!profile.ranking().usesBm25())
+            return null;
+        TermMatcher matcher = profile.matcher();
+        TermMatcher.Hits hits = matcher.newHits();
+        int[] df = new int[matcher.patternCount()];
+        long titleTokens = 0;
+        long descriptionTokens = 0;
+        int n = 0;
+        for (Listing l : listings) {
+            String title = l.normalizedTitle(matcher.normalizer());
+            String description = l.normalizedDescription(matcher.normalizer());
+            hits.clear();
+            matcher.scan(hits, title, TermMatcher.TITLE);
+            matcher.scan(hits, description, TermMatcher.DESCRIPTION);
+            for (int i = 0; i < hits.matchedCount(); i++) {
+                df[hits.matchedPattern(i)]++;
+            }
+            titleTokens += ListingIndex.countTokens(title);
+            descriptionTokens += ListingIndex.countTokens(description);
+            n++;
+        }
+
+        double[] idf = new double[df.length];
+        for (int p = 0; p < idf.length; p++) {
+            if (isQueryTerm(matcher, p))
+                idf[p] = idf(n, df[p]);
+        }
+        return new Bm25(profile.ranking(), idf, n > 0 ? (double) titleTokens / n : 0,
+                n > 0 ? (double) descriptionTokens / n : 0);
+    }
+
+    /** Relevance of the listing whose matches are in {@code hits}, given its field lengths in words. */
+    public double score(TermMatcher.Hits hits, int titleTokens, int descriptionTokens) {
+        double titleNorm = 1 - b + b * titleTokens / averageTitle;
+        double descriptionNorm = 1 - b + b * descriptionTokens / averageDescription;
+        double score = 0;
+        for (int i = 0; i < hits.matchedCount(); i++) {
+            int p = hits.matchedPattern(i);
+            if (idf[p] == 0)
+                continue;
+            double tf = titleBoost * hits.titleCount(p) / titleNorm + hits.descriptionCount(p) / descriptionNorm;
+            score += idf[p] * tf / (k1 + tf);
+        }
+        return score;
+    }
+
+    private static boolean isQueryTerm(TermMatcher matcher, int p) {
+        return matcher.inGroup(p, TermMatcher.Group.LIA) || matcher.inGroup(p, TermMatcher.Group.JAVA);
+    }
+
+    /** The BM25 inverse document frequency, which stays positive for terms in most documents. */
+    private static double idf(int documents, int df) {
+        return Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+    }
+}
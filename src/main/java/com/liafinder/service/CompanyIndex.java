@@ -0,0 +1,225 @@
+package com.liafinder.service;
+
+import com.liafinder.config.ConfigLoader;
+import com.liafinder.model.Company;
+import com.liafinder.model.TextNormalizer;
+import com.liafinder.store.ListingIndex;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Joins a listing's employer to its entry in companies.yaml. Employer names
+ * and company names are reduced to a key (folded, punctuation, spaces and
+ * legal suffixes such as "AB" dropped, so "Example Consulting AB" and
+ * "ExampleConsulting" meet) and looked up in a hash map that also holds each
+ * company's website domain. A name that is not found there falls back to a
+ * trigram index and takes the most similar company above
+ * {@value #MIN_SIMILARITY} Dice similarity. Results are memoized per employer
+ * name, since the same employers post many ads; the memo is dropped when it
+ * passes {@value #MEMO_LIMIT} names so a long-running daemon stays bounded.
+ */
+public final class CompanyIndex {
+    public static final String DEFAULT_FILE = "companies.yaml";
+    static final CompanyIndex EMPTY = new CompanyIndex(List.of(), List.of());
+
+    private static final double MIN_SIMILARITY = 0.6;
+    // Shorter keys share too few trigrams to tell companies apart
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final Set<String> LEGAL_SUFFIXES = Set.of("ab", "publ", "aktiebolag", "hb", "kb", "ltd",
+            "limited", "inc", "llc", "gmbh", "as", "asa", "oy", "oyj", "aps", "bv", "nv", "plc", "group", "sverige",
+            "sweden");
+    // Second-level labels under a country code: "example.co.uk" is registered as "example"
+    private static final Set<String> SECOND_LEVEL = Set.of("co", "com", "org", "net", "ac", "gov", "edu");
+    private static final int MEMO_LIMIT = 10_000;
+    private static final Match NO_MATCH = new Match(null, List.of());
+
+    /** A company and those of its {@code stack_hints} that are among the profile's Java terms. */
+    public record Match(Company company, List<String> hints) {
+    }
+
+    private final List<Match> matches = new ArrayList<>();
+    // Name and domain keys; both index into matches
+    private final Map<String, Integer> byKey = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<Integer> keyMatch = new ArrayList<>();
+    private final Map<Long, int[]> byTrigram = new HashMap<>();
+    private final int[] trigramCounts;
+    private final Map<String, Match> memo = new ConcurrentHashMap<>();
+
+    private CompanyIndex(List<Company> companies, List<String> javaTerms) {
+        Set<String> wanted = new HashSet<>();
+        if (javaTerms != null) {
+            for (String t : javaTerms) {
+                wanted.add(TextNormalizer.FULL.normalize(t));
+            }
+        }
+        for (Company c : companies) {
+            if (c == null || c.name() == null)
+                continue;
+            List<String> hints = new ArrayList<>();
+            if (c.stack_hints() != null) {
+                for (String h : c.stack_hints()) {
+                    if (h != null && wanted.contains(TextNormalizer.FULL.normalize(h)))
+                        hints.add(h);
+                }
+            }
+            matches.add(new Match(c, List.copyOf(hints)));
+        }
+        // Names first, so a domain never shadows another company's name
+        for (int i = 0; i < matches.size(); i++) {
+            addKey(key(matches.get(i).company().name()), i);
+        }
+        for (int i = 0; i < matches.size(); i++) {
+            addKey(domainKey(matches.get(i).company().website()), i);
+        }
+
+        Map<Long, List<Integer>> postings = new HashMap<>();
+        trigramCounts = new int[keys.size()];
+        for (int k = 0; k < keys.size(); k++) {
+            long[] grams = trigrams(keys.get(k));
+            trigramCounts[k] = grams.length;
+            for (long g : grams) {
+                postings.computeIfAbsent(g, x -> new ArrayList<>()).add(k);
+            }
+        }
+        postings.forEach((g, ids) -> byTrigram.put(g, ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    public static CompanyIndex of(List<Company> companies, List<String> javaTerms) {
+        return companies == null || companies.isEmpty() ? EMPTY : new CompanyIndex(companies, javaTerms);
+    }
+
+    /** The companies in {@code file}; empty when there is no such file or it cannot be read. */
+    public static CompanyIndex load(Path file, List<String> javaTerms) {
+        if (!Files.isRegularFile(file))
+            return EMPTY;
+        try {
+            return of(ConfigLoader.loadCompanies(file.toString()), javaTerms);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable " + file + ": " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    public int size() {
+        return matches.size();
+    }
+
+    public List<Match> matches() {
+        return matches;
+    }
+
+    /** The company this employer name refers to, or null. */
+    public Match find(String employer) {
+        if (employer == null || matches.isEmpty())
+            return null;
+        Match m = memo.get(employer);
+        if (m == null) {
+            m = lookup(key(employer));
+            if (memo.size() >= MEMO_LIMIT)
+                memo.clear();
+            memo.put(employer, m);
+        }
+        return m == NO_MATCH ? null : m;
+    }
+
+    private Match lookup(String key) {
+        if (key.isEmpty())
+            return NO_MATCH;
+        Integer exact = byKey.get(key);
+        if (exact != null)
+            return matches.get(keyMatch.get(exact));
+        if (key.length() < MIN_FUZZY_LENGTH)
+            return NO_MATCH;
+
+        // Only keys sharing a trigram are looked at
+        long[] grams = trigrams(key);
+        int[] shared = new int[keys.size()];
+        int[] touched = new int[keys.size()];
+        int touchedCount = 0;
+        for (long g : grams) {
+            int[] ids = byTrigram.get(g);
+            if (ids == null)
+                continue;
+            for (int k : ids) {
+                if (shared[k]++ == 0)
+                    touched[touchedCount++] = k;
+            }
+        }
+        int best = -1;
+        double bestSimilarity = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int k = touched[i];
+            double similarity = 2.0 * shared[k] / (grams.length + trigramCounts[k]);
+            if (similarity > bestSimilarity) {
+                best = k;
+                bestSimilarity = similarity;
+            }
+        }
+        return bestSimilarity >= MIN_SIMILARITY ? matches.get(keyMatch.get(best)) : NO_MATCH;
+    }
+
+    private void addKey(String key, int match) {
+        if (key == null || key.isEmpty() || byKey.containsKey(key))
+            return;
+        byKey.put(key, keys.size());
+        keys.add(key);
+        keyMatch.add(match);
+    }
+
+    /** The words of a name, folded, without legal suffixes, run together. */
+    static String key(String name) {
+        List<String> words = new ArrayList<>();
+        ListingIndex.tokenize(name, words::add);
+        StringBuilder sb = new StringBuilder();
+        for (String w : words) {
+            if (!LEGAL_SUFFIXES.contains(w))
+                sb.append(w);
+        }
+        // A name made only of suffixes ("Group AB") keeps them
+        if (sb.length() == 0)
+            words.forEach(sb::append);
+        return sb.toString();
+    }
+
+    /** The registered name of the website's host: "https://careers.example.co.uk/jobs" gives "example". */
+    static String domainKey(String website) {
+        if (website == null || website.isBlank())
+            return null;
+        String host;
+        try {
+            host = URI.create(website.contains("://") ? website.trim() : "https://" + website.trim()).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (host == null)
+            return null;
+        String[] labels = host.split("\\.");
+        if (labels.length < 2)
+            return key(host);
+        int name = labels.length - 2;
+        if (name > 0 && labels[labels.length - 1].length() == 2 && SECOND_LEVEL.contains(labels[name]))
+            name--;
+        return key(labels[name]);
+    }
+
+    /** Distinct trigrams of the key padded with a space at each end, three chars packed per long. */
+    private static long[] trigrams(String key) {
+        String padded = " " + key + " ";
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add((long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2));
+        }
+        return grams.stream().mapToLong(Long::longValue).toArray();
+    }
+}
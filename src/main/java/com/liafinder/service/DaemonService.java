@@ -0,0 +1,234 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.PipelineMetrics;
+import com.liafinder.model.Listing;
+import com.liafinder.model.ScoredListing;
+import com.liafinder.store.CompactListings;
+import com.liafinder.store.ListingIndex;
+import com.liafinder.store.ListingStore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running monitor. Each poll asks JobTech only for ads published since
+ * the last successful poll, scores the ads that are new or whose content
+ * changed, and prints the best of them.
+ *
+ * <p>JobTech has no feed of edited ads, and an ad edited after it was
+ * published is not in the window of a later poll. Such edits are only seen by
+ * a full poll, which fetches every ad again; the first poll is one, and after
+ * that one runs every {@code daemon.full_poll_hours}.
+ */
+public class DaemonService {
+    private static final int DEFAULT_POLL_MINUTES = 15;
+    private static final int DEFAULT_MAX_BACKOFF_MINUTES = 120;
+    private static final int DEFAULT_TOP_N = 5;
+    private static final int DEFAULT_FULL_POLL_HOURS = 24;
+    // Re-request a little before the last watermark so ads indexed late are not missed
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(5);
+
+    private final String configPath;
+    private final AppConfig cfg;
+    private final Duration pollInterval;
+    private final Duration maxBackoff;
+    private final int topN;
+    private final double minScore;
+    // Null when only the first poll is a full one
+    private final Duration fullPollInterval;
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "lia-daemon");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ProfileWatcher profiles;
+    private ListingStore store;
+    private ListingIndex index;
+    // Every ad seen so far, so a repost under a new id is not reported as a new match
+    private final NearDuplicateDetector duplicates = new NearDuplicateDetector();
+    private Instant watermark;
+    private Instant lastFullPoll;
+    private int consecutiveFailures;
+
+    /**
+     * Poll timing and the data directory are read once; search terms, weights
+     * and sources are picked up from config.yaml whenever it changes.
+     */
+    public DaemonService(String configPath, AppConfig cfg) {
+        AppConfig.DaemonConfig d = cfg.daemon();
+        this.configPath = configPath;
+        this.cfg = cfg;
+        this.pollInterval = Duration.ofMinutes(d != null && d.pollIntervalMinutes() > 0
+                ? d.pollIntervalMinutes() : DEFAULT_POLL_MINUTES);
+        this.maxBackoff = Duration.ofMinutes(d != null && d.maxBackoffMinutes() > 0
+                ? d.maxBackoffMinutes() : DEFAULT_MAX_BACKOFF_MINUTES);
+        this.topN = d != null && d.topN() > 0 ? d.topN() : DEFAULT_TOP_N;
+        this.minScore = d != null ? d.minScore() : 0.0;
+        int fullPollHours = d != null && d.fullPollHours() != null ? d.fullPollHours() : DEFAULT_FULL_POLL_HOURS;
+        this.fullPollInterval = fullPollHours > 0 ? Duration.ofHours(fullPollHours) : null;
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /** Polls until the JVM is asked to shut down (Ctrl+C / SIGTERM). */
+    public void run() throws InterruptedException, IOException {
+        open();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("\nStopping daemon...");
+            scheduler.shutdown();
+            try {
+                // Let a poll that is already running finish its output
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                System.err.println("Failed to close listing store: " + e.getMessage());
+            }
+        }, "lia-daemon-shutdown"));
+
+        System.out.println("Polling every " + pollInterval.toMinutes() + " min, " + store.size()
+                + " ads already known (Ctrl+C to stop).");
+        scheduler.execute(this::pollAndReschedule);
+        scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /** Opens the store and index; {@link #poll()} can be called directly after this, as the load test does. */
+    void open() throws IOException {
+        // Ads seen by earlier runs (daemon or monitor) are not reported again
+        profiles = ProfileWatcher.start(configPath, cfg);
+        store = ListingStore.open(cfg);
+        index = ListingIndex.open(cfg, store);
+        // Straight from the document store: decoding every ad into a Listing would keep the corpus on the heap
+        CompactListings docs = index.documents();
+        for (int doc = 0; doc < docs.size(); doc++) {
+            if (!docs.isDeleted(doc))
+                duplicates.isRepost(NearDuplicateDetector.fingerprint(docs.title(doc), docs.company(doc),
+                        docs.description(doc)), docs.url(doc));
+        }
+    }
+
+    void close() throws IOException {
+        profiles.close();
+        store.close();
+    }
+
+    private void pollAndReschedule() {
+        Duration next;
+        try {
+            next = poll();
+        } catch (Exception e) {
+            System.err.println("Poll failed: " + e.getMessage());
+            next = backoff();
+        }
+
+        if (scheduler.isShutdown())
+            return;
+        try {
+            scheduler.schedule(this::pollAndReschedule, next.toMillis(), TimeUnit.MILLISECONDS);
+            System.out.println("Next poll in " + next.toSeconds() + "s.");
+        } catch (RejectedExecutionException e) {
+            // The shutdown hook ran between the check and the schedule; stopping is what it asked for
+        }
+    }
+
+    /** One poll; returns the delay until the next one. */
+    Duration poll() throws IOException {
+        PipelineMetrics.reset();
+        try {
+            return pollOnce();
+        } finally {
+            PipelineMetrics.writeSummary(cfg, "daemon");
+        }
+    }
+
+    private Duration pollOnce() throws IOException {
+        Instant started = Instant.now();
+        boolean full = lastFullPoll == null
+                || fullPollInterval != null && started.isAfter(lastFullPoll.plus(fullPollInterval));
+        Instant since = full ? null : watermark.minus(WATERMARK_OVERLAP);
+        System.out.println("\n[" + LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + "] Polling"
+                + (since != null ? " for ads published after " + since.truncatedTo(ChronoUnit.SECONDS)
+                        : " all ads") + "...");
+
+        SearchProfile profile = profiles.current();
+        JobSearchService.FetchResult result = JobSearchService.fetch(profile, since);
+
+        List<Listing> changed = new ArrayList<>();
+        int stored = 0;
+        int reposts = 0;
+        for (Listing l : result.listings()) {
+            if (store.put(l) != ListingStore.PutResult.UNCHANGED) {
+                stored++;
+                index.add(l);
+                if (duplicates.isRepost(l)) {
+                    reposts++;
+                } else {
+                    changed.add(l);
+                }
+            }
+        }
+        store.flush();
+        if (stored > 0) {
+            index.save();
+        }
+        if (reposts > 0) {
+            System.out.println(reposts + " reposts of known ads skipped.");
+        }
+
+        if (changed.isEmpty()) {
+            System.out.println("No new or changed ads.");
+        } else {
+            List<ScoredListing> scored = RankingService.topListings(profile, Bm25.of(profile, index), changed, topN);
+            System.out.println(changed.size() + " new or changed ads. New top matches:");
+            int shown = 0;
+            for (ScoredListing sl : scored) {
+                if (sl.score < minScore)
+                    break;
+                shown++;
+                System.out.printf("[%d] %s - %s (Score: %.1f)\n    URL: %s\n", shown, sl.title, sl.company,
+                        sl.score, sl.url);
+            }
+            if (shown == 0) {
+                System.out.printf("  (none scored above %.1f)\n", minScore);
+            }
+        }
+
+        if (result.failedQueries() > 0) {
+            // Keep the old watermark so the failed queries are retried for the same window
+            System.err.println(result.failedQueries() + " of " + result.queries() + " queries failed.");
+            return backoff();
+        }
+        if (result.queries() > 0) {
+            watermark = started;
+            if (full)
+                lastFullPoll = started;
+        }
+        consecutiveFailures = 0;
+        return jitter(pollInterval, 0.1);
+    }
+
+    /** Exponential backoff from the poll interval, capped and with jitter over the upper half. */
+    private Duration backoff() {
+        consecutiveFailures++;
+        long base = pollInterval.toMillis() << Math.min(consecutiveFailures, 16);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+
+    private static Duration jitter(Duration d, double fraction) {
+        long spread = (long) (d.toMillis() * fraction);
+        return d.plusMillis(ThreadLocalRandom.current().nextLong(-spread, spread + 1));
+    }
+}
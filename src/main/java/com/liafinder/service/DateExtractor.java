@@ -0,0 +1,418 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.TextNormalizer;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.time.temporal.WeekFields;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds the dates and periods an ad mentions, in one pass over its text, and
+ * compares them with the LIA period from {@code lia.start_date} and
+ * {@code lia.end_date}. Recognized, in Swedish and English:
+ * <ul>
+ * <li>years: "2026"</li>
+ * <li>terms: "HT26", "VT 2027", "hösttermin 2026", "hösten 2026", "autumn 2026"</li>
+ * <li>months: "oktober 2026", "Oct. 2026", or "oktober" alone</li>
+ * <li>weeks: "v.42", "vecka 42", "week 42", "v.42–10"</li>
+ * <li>ISO dates and months: "2026-10-12", "2026-10"</li>
+ * </ul>
+ * A month or week without a year is placed where it falls in the LIA period.
+ * Abbreviated month names such as "may" or "jan" only count when a year
+ * follows, since they are ordinary words too. Numbers in a phone number (a
+ * run of digit groups starting with "+" or a leading zero, as in
+ * "08-555 2026") are not dates.
+ */
+public final class DateExtractor {
+    private static final int NONE = 0;
+    private static final int MONTH = 1;
+    private static final int MONTH_NEEDS_YEAR = 2;
+    private static final int TERM = 3;
+    private static final int TERM_NEEDS_FULL_YEAR = 4;
+    private static final int WEEK = 5;
+    private static final int YEAR = 6;
+    private static final int YEAR_MONTH = 7;
+    private static final int WEEK_RANGE = 8;
+
+    // Autumn term is August to January, spring term January to June
+    private static final int AUTUMN = 1;
+    private static final int SPRING = 2;
+
+    /** Word → kind << 8 | value (month number, or AUTUMN/SPRING). */
+    private static final Map<String, Integer> WORDS = Map.ofEntries(
+            month("januari", 1), month("january", 1), abbreviation("jan", 1),
+            month("februari", 2), month("february", 2), abbreviation("feb", 2),
+            month("mars", 3), month("march", 3), abbreviation("mar", 3),
+            month("april", 4), abbreviation("apr", 4),
+            month("maj", 5), abbreviation("may", 5),
+            month("juni", 6), month("june", 6), abbreviation("jun", 6),
+            month("juli", 7), month("july", 7), abbreviation("jul", 7),
+            month("augusti", 8), month("august", 8), abbreviation("aug", 8),
+            month("september", 9), abbreviation("sep", 9), abbreviation("sept", 9),
+            month("oktober", 10), month("october", 10), abbreviation("okt", 10), abbreviation("oct", 10),
+            month("november", 11), abbreviation("nov", 11),
+            month("december", 12), abbreviation("dec", 12),
+            Map.entry("ht", TERM << 8 | AUTUMN), Map.entry("vt", TERM << 8 | SPRING),
+            Map.entry("hosttermin", TERM << 8 | AUTUMN), Map.entry("hostterminen", TERM << 8 | AUTUMN),
+            Map.entry("vartermin", TERM << 8 | SPRING), Map.entry("varterminen", TERM << 8 | SPRING),
+            Map.entry("autumn", TERM_NEEDS_FULL_YEAR << 8 | AUTUMN),
+            Map.entry("fall", TERM_NEEDS_FULL_YEAR << 8 | AUTUMN),
+            Map.entry("host", TERM_NEEDS_FULL_YEAR << 8 | AUTUMN),
+            Map.entry("hosten", TERM_NEEDS_FULL_YEAR << 8 | AUTUMN),
+            Map.entry("varen", TERM_NEEDS_FULL_YEAR << 8 | SPRING),
+            Map.entry("spring", TERM_NEEDS_FULL_YEAR << 8 | SPRING),
+            Map.entry("v", WEEK << 8), Map.entry("vecka", WEEK << 8), Map.entry("veckor", WEEK << 8),
+            Map.entry("week", WEEK << 8), Map.entry("weeks", WEEK << 8), Map.entry("wk", WEEK << 8));
+    private static final int MAX_WORD = 12;
+
+    // The words packed into longs, sorted, so a scanned word is looked up without creating a String
+    private static final long[] WORD_KEYS;
+    private static final int[] WORD_KINDS;
+
+    static {
+        long[] keys = WORDS.keySet().stream().mapToLong(DateExtractor::pack).sorted().toArray();
+        WORD_KEYS = keys;
+        WORD_KINDS = new int[keys.length];
+        WORDS.forEach((w, kind) -> WORD_KINDS[Arrays.binarySearch(keys, pack(w))] = kind);
+    }
+
+    // Year and month as a month count, year * 12 + month - 1
+    private final int start;
+    private final int end;
+    private final int[] weekMonths = new int[54];
+
+    private DateExtractor(YearMonth start, YearMonth end) {
+        this.start = months(start);
+        this.end = months(end);
+        // Week numbers without a year fall at or after the start, within a year
+        WeekFields iso = WeekFields.ISO;
+        for (int w = 1; w < weekMonths.length; w++) {
+            int m = months(YearMonth.from(weekThursday(start.getYear(), w, iso)));
+            if (m < this.start)
+                m = months(YearMonth.from(weekThursday(start.getYear() + 1, w, iso)));
+            weekMonths[w] = m;
+        }
+    }
+
+    /**
+     * The extractor for the configured LIA period, or null without a valid
+     * start date. An end before the start is taken to be in the next year,
+     * and no end means the period is the start month only.
+     */
+    public static DateExtractor of(AppConfig.LiaConfig lia) {
+        if (lia == null || lia.startDate() == null)
+            return null;
+        try {
+            YearMonth start = yearMonth(lia.startDate());
+            YearMonth end = lia.endDate() != null ? yearMonth(lia.endDate()) : start;
+            while (end.isBefore(start)) {
+                end = end.plusYears(1);
+            }
+            return new DateExtractor(start, end);
+        } catch (DateTimeException e) {
+            System.err.println("Ignoring LIA dates, expected YYYY-MM or YYYY-MM-DD: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public YearMonth start() {
+        return YearMonth.of(start / 12, start % 12 + 1);
+    }
+
+    public YearMonth end() {
+        return YearMonth.of(end / 12, end % 12 + 1);
+    }
+
+    /** "October 2026", for score reasons. */
+    static String label(YearMonth ym) {
+        return ym.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH) + " " + ym.getYear();
+    }
+
+    public Mentions newMentions() {
+        return new Mentions();
+    }
+
+    private static YearMonth yearMonth(String value) {
+        String v = value.trim();
+        return v.length() > 7 ? YearMonth.from(LocalDate.parse(v)) : YearMonth.parse(v);
+    }
+
+    private static LocalDate weekThursday(int year, int week, WeekFields iso) {
+        return LocalDate.of(year, 1, 4).with(iso.weekOfWeekBasedYear(), week).with(DayOfWeek.THURSDAY);
+    }
+
+    private static int months(YearMonth ym) {
+        return ym.getYear() * 12 + ym.getMonthValue() - 1;
+    }
+
+    /** Five bits per letter a-z, or -1 for anything else. */
+    private static long pack(CharSequence word) {
+        long key = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z')
+                return -1;
+            key = key << 5 | (c - 'a' + 1);
+        }
+        return key;
+    }
+
+    private static Map.Entry<String, Integer> month(String word, int month) {
+        return Map.entry(word, MONTH << 8 | month);
+    }
+
+    private static Map.Entry<String, Integer> abbreviation(String word, int month) {
+        return Map.entry(word, MONTH_NEEDS_YEAR << 8 | month);
+    }
+
+    /**
+     * What the scanned texts say about the LIA period. Can be {@link #clear()
+     * cleared} and reused; the texts of one listing are scanned into the same
+     * instance.
+     */
+    public final class Mentions {
+        private boolean yearInPeriod;
+        private boolean yearBeforeStart;
+        private boolean yearFromStart;
+        private boolean startMonth;
+        private boolean endMonth;
+
+        // Scanner state within one text
+        private final char[] word = new char[MAX_WORD];
+        private int wordLength;
+        private int number;
+        private int digits;
+        private boolean leadingZero;
+        private boolean phone;
+        private int gap;
+        private char separator;
+        private int previous;
+        private int previousValue;
+
+        private Mentions() {
+        }
+
+        public void clear() {
+            yearInPeriod = false;
+            yearBeforeStart = false;
+            yearFromStart = false;
+            startMonth = false;
+            endMonth = false;
+        }
+
+        /** A year of the LIA period is mentioned. */
+        public boolean yearInPeriod() {
+            return yearInPeriod;
+        }
+
+        /** A date, month, week or term mentioned covers the start month. */
+        public boolean start() {
+            return startMonth;
+        }
+
+        public boolean end() {
+            return endMonth;
+        }
+
+        /** The year before the start is mentioned and no later year: most likely last year's ad. */
+        public boolean tooEarly() {
+            return yearBeforeStart && !yearFromStart;
+        }
+
+        /** Adds the mentions in {@code text}, raw or normalized. */
+        public void scan(CharSequence text) {
+            if (text == null)
+                return;
+            begin();
+            for (int i = 0, len = text.length(); i < len; i++) {
+                accept(text.charAt(i));
+            }
+            finish();
+        }
+
+        /** Same as {@link #scan(CharSequence)} over UTF-8 encoded text. */
+        public void scanUtf8(byte[] text, int offset, int length) {
+            begin();
+            int i = offset;
+            int limit = offset + length;
+            while (i < limit) {
+                int b = text[i++];
+                if (b >= 0) {
+                    accept((char) b);
+                } else if ((b & 0xE0) == 0xC0) {
+                    accept((char) (((b & 0x1F) << 6) | (text[i++] & 0x3F)));
+                } else if ((b & 0xF0) == 0xE0) {
+                    accept((char) (((b & 0x0F) << 12) | ((text[i] & 0x3F) << 6) | (text[i + 1] & 0x3F)));
+                    i += 2;
+                } else {
+                    // Outside the BMP: never part of a date
+                    accept(' ');
+                    i += 3;
+                }
+            }
+            finish();
+        }
+
+        private void begin() {
+            wordLength = 0;
+            digits = 0;
+            number = 0;
+            gap = 0;
+            separator = ' ';
+            previous = NONE;
+            phone = false;
+        }
+
+        private void finish() {
+            endToken();
+            if (previous == MONTH)
+                monthAlone(previousValue);
+        }
+
+        private void accept(char raw) {
+            char c = TextNormalizer.FULL.fold(raw);
+            if (c == TextNormalizer.DROP)
+                return;
+            if (c >= '0' && c <= '9') {
+                if (wordLength > 0)
+                    endToken();
+                if (digits == 0)
+                    leadingZero = c == '0';
+                if (digits < 9)
+                    number = number * 10 + (c - '0');
+                digits++;
+            } else if (Character.isLetter(c)) {
+                if (digits > 0)
+                    endToken();
+                if (wordLength < MAX_WORD)
+                    word[wordLength] = c;
+                wordLength++;
+            } else {
+                endToken();
+                gap++;
+                if (c != ' ')
+                    separator = c;
+            }
+        }
+
+        private void endToken() {
+            if (wordLength > 0) {
+                endWord();
+            } else if (digits > 0) {
+                endNumber();
+            } else {
+                return;
+            }
+            wordLength = 0;
+            digits = 0;
+            number = 0;
+            gap = 0;
+            separator = ' ';
+        }
+
+        private void endWord() {
+            int kind = 0;
+            if (wordLength <= MAX_WORD) {
+                long key = 0;
+                for (int i = 0; i < wordLength && key >= 0; i++) {
+                    char c = word[i];
+                    key = c >= 'a' && c <= 'z' ? key << 5 | (c - 'a' + 1) : -1;
+                }
+                int found = key > 0 ? Arrays.binarySearch(WORD_KEYS, key) : -1;
+                if (found >= 0)
+                    kind = WORD_KINDS[found];
+            }
+            if (previous == MONTH)
+                monthAlone(previousValue);
+            phone = false;
+            previous = kind >> 8;
+            previousValue = kind & 0xFF;
+        }
+
+        private void endNumber() {
+            boolean near = gap <= 2;
+            boolean range = gap <= 3 && (separator == '-' || separator == '–' || separator == '—');
+            int kind = previous;
+            previous = NONE;
+            // "08-555 20 26", "+46 8 555 2026": the groups after the first are one space or dash apart
+            phone = phone && gap <= 1 && (separator == ' ' || separator == '-')
+                    || kind == NONE && (separator == '+' || leadingZero && digits >= 2);
+            if (phone)
+                return;
+            if ((kind == MONTH || kind == MONTH_NEEDS_YEAR) && gap <= 3 && digits == 4 && isYear(number)) {
+                year(number);
+                period(number * 12 + previousValue - 1, number * 12 + previousValue - 1);
+                return;
+            }
+            if (kind == MONTH)
+                monthAlone(previousValue);
+            if ((kind == TERM && near && (digits == 2 || digits == 4))
+                    || (kind == TERM_NEEDS_FULL_YEAR && near && digits == 4)) {
+                int y = digits == 2 ? 2000 + number : number;
+                if (isYear(y)) {
+                    year(y);
+                    if (previousValue == AUTUMN) {
+                        period(y * 12 + 7, y * 12 + 12);
+                    } else {
+                        period(y * 12, y * 12 + 5);
+                    }
+                    // "HT26–VT27" continues with another term word, so nothing to keep
+                }
+            } else if (((kind == WEEK && near) || (kind == WEEK_RANGE && range)) && digits <= 2 && number >= 1
+                    && number <= 53) {
+                int m = weekMonths[number];
+                period(m, m);
+                // "v.42–10": a number after a dash is another week
+                previous = WEEK_RANGE;
+            } else if (kind == YEAR && gap == 1 && separator == '-' && digits == 2 && number >= 1 && number <= 12) {
+                period(previousValue * 12 + number - 1, previousValue * 12 + number - 1);
+                previous = YEAR_MONTH;
+            } else if (kind == YEAR_MONTH && gap == 1 && separator == '-' && digits == 2) {
+                // The day of an ISO date
+            } else if (digits == 4 && isYear(number)) {
+                year(number);
+                previous = YEAR;
+                previousValue = number;
+            }
+        }
+
+        private boolean isYear(int y) {
+            return y >= 1990 && y <= 2099;
+        }
+
+        private void year(int y) {
+            int startYear = start / 12;
+            if (y >= startYear && y <= end / 12)
+                yearInPeriod = true;
+            if (y == startYear - 1)
+                yearBeforeStart = true;
+            if (y >= startYear)
+                yearFromStart = true;
+        }
+
+        /** A month count range with a known year. */
+        private void period(int from, int to) {
+            if (from <= start && start <= to)
+                startMonth = true;
+            if (from <= end && end <= to)
+                endMonth = true;
+        }
+
+        /** A month name without a year, placed at or after the start month. */
+        private void monthAlone(int month) {
+            int startYear = start / 12;
+            int m = startYear * 12 + month - 1;
+            if (m < start)
+                m += 12;
+            period(m, m);
+            previous = NONE;
+        }
+    }
+}
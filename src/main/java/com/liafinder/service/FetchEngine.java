@@ -0,0 +1,316 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.Events;
+import com.liafinder.metrics.PipelineMetrics;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Runs HTTP requests concurrently with {@link HttpClient#sendAsync}, bounded by
+ * {@code fetch.max_concurrency} in-flight requests and a per-host rate limit.
+ *
+ * <p>Every attempt has a deadline for the response headers, and the final
+ * response another one for reading its body; a body that stalls is closed and
+ * the reading thread interrupted, so a slow server cannot hold a concurrency
+ * permit for longer than that. What is done with the body once it is read
+ * runs without a deadline. Responses with 429 or a 5xx status, and
+ * requests that failed or timed out, are retried after a jittered exponential
+ * backoff (or the server's Retry-After). A request still without a response
+ * after the host's recent p95 latency gets one duplicate, and whichever
+ * answers first is used; hedges are limited to about one in ten requests and
+ * to free rate-limit slots, so a healthy API sees next to no extra load.
+ * Requests to a host whose {@link HostHealth circuit breaker} is open fail at
+ * once.
+ */
+public class FetchEngine {
+    static final int DEFAULT_MAX_CONCURRENCY = 6;
+    static final double DEFAULT_REQUESTS_PER_SECOND = 5.0;
+    static final int DEFAULT_TIMEOUT_SECONDS = 30;
+    static final int DEFAULT_MAX_RETRIES = 2;
+    static final int DEFAULT_RETRY_BASE_MILLIS = 500;
+    static final int DEFAULT_BREAKER_FAILURES = 5;
+    static final int DEFAULT_BREAKER_OPEN_SECONDS = 60;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int READ = 1;
+    private static final int TIMED_OUT = 2;
+
+    // Only schedules retries and hedges; the requests themselves run on the HttpClient's executor
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "lia-fetch-timer");
+        t.setDaemon(true);
+        return t;
+    });
+    // Runs the handlers, which read the response bodies, off the HttpClient's and the timer's threads
+    private static final ExecutorService readers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "lia-fetch-reader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final HttpClient client;
+    private final Semaphore permits;
+    private final HostRateLimiter rateLimiter;
+    private final Duration timeout;
+    private final int maxRetries;
+    private final long retryBaseMillis;
+    private final boolean hedge;
+    private final int breakerFailures;
+    private final long breakerOpenNanos;
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger hedges = new AtomicInteger();
+
+    public FetchEngine(HttpClient client, AppConfig.FetchConfig fetchCfg) {
+        int maxConcurrency = (fetchCfg != null && fetchCfg.maxConcurrency() > 0) ? fetchCfg.maxConcurrency()
+                : DEFAULT_MAX_CONCURRENCY;
+        double rps = (fetchCfg != null) ? fetchCfg.requestsPerSecond() : DEFAULT_REQUESTS_PER_SECOND;
+
+        this.client = client;
+        this.permits = new Semaphore(maxConcurrency);
+        this.rateLimiter = new HostRateLimiter(rps);
+        this.timeout = Duration.ofSeconds(fetchCfg != null && fetchCfg.requestTimeoutSeconds() > 0
+                ? fetchCfg.requestTimeoutSeconds() : DEFAULT_TIMEOUT_SECONDS);
+        this.maxRetries = (fetchCfg != null && fetchCfg.maxRetries() != null) ? Math.max(fetchCfg.maxRetries(), 0)
+                : DEFAULT_MAX_RETRIES;
+        this.retryBaseMillis = (fetchCfg != null && fetchCfg.retryBaseMillis() > 0) ? fetchCfg.retryBaseMillis()
+                : DEFAULT_RETRY_BASE_MILLIS;
+        this.hedge = fetchCfg == null || fetchCfg.hedge() == null || fetchCfg.hedge();
+        this.breakerFailures = (fetchCfg != null && fetchCfg.breakerFailures() > 0) ? fetchCfg.breakerFailures()
+                : DEFAULT_BREAKER_FAILURES;
+        this.breakerOpenNanos = TimeUnit.SECONDS.toNanos(fetchCfg != null && fetchCfg.breakerOpenSeconds() > 0
+                ? fetchCfg.breakerOpenSeconds() : DEFAULT_BREAKER_OPEN_SECONDS);
+    }
+
+    /**
+     * Starts the request once a concurrency permit and a rate-limit slot are
+     * available (blocking the caller until then), reads the final response
+     * with {@code read} within the request timeout and passes what it read to
+     * {@code then}. The permit is held through retries until {@code then} has
+     * finished, or {@code read} has not finished within the timeout.
+     */
+    public <B, R, T> CompletableFuture<T> submit(HttpRequest request, HttpResponse.BodyHandler<B> bodyHandler,
+            Function<HttpResponse<B>, R> read, Function<R, T> then) {
+        String host = request.uri().getHost();
+        HostHealth health = HostHealth.of(host);
+        if (!health.tryAcquire(System.nanoTime(), breakerOpenNanos)) {
+            PipelineMetrics.circuitOpen.increment();
+            return CompletableFuture.failedFuture(new IOException("circuit open for " + host));
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        try {
+            rateLimiter.acquire(host);
+        } catch (InterruptedException e) {
+            permits.release();
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        HttpRequest timed = request.timeout().isPresent() ? request
+                : HttpRequest.newBuilder(request, (name, value) -> true).timeout(timeout).build();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Handler<B, R, T> handler = new Handler<>(read, then);
+        attempt(timed, bodyHandler, handler, health, 0, result);
+        return result.whenComplete((r, e) -> permits.release());
+    }
+
+    private record Handler<B, R, T>(Function<HttpResponse<B>, R> read, Function<R, T> then) {
+    }
+
+    private <B, R, T> void attempt(HttpRequest request, HttpResponse.BodyHandler<B> bodyHandler,
+            Handler<B, R, T> handler, HostHealth health, int attempt, CompletableFuture<T> result) {
+        hedged(request, bodyHandler, health, attempt).whenComplete((response, error) -> {
+            boolean failed = error != null || isRetryable(response.statusCode());
+            if (!failed) {
+                health.onSuccess();
+                complete(result, handler, response);
+                return;
+            }
+
+            if (attempt < maxRetries && !health.isOpen()) {
+                if (response != null)
+                    discard(response);
+                PipelineMetrics.retries.increment();
+                long slot = rateLimiter.reserve(request.uri().getHost(), System.nanoTime() + backoffNanos(attempt,
+                        response));
+                timer.schedule(() -> attempt(request, bodyHandler, handler, health, attempt + 1, result),
+                        slot - System.nanoTime(), TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            health.onFailure(System.nanoTime(), breakerFailures);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                // The handler reports the final status
+                complete(result, handler, response);
+            }
+        });
+    }
+
+    /** Sends the request, and a duplicate if there is no response after the host's p95 latency. */
+    private <B> CompletableFuture<HttpResponse<B>> hedged(HttpRequest request,
+            HttpResponse.BodyHandler<B> bodyHandler, HostHealth health, int attempt) {
+        CompletableFuture<HttpResponse<B>> primary = send(request, bodyHandler, health, attempt, false);
+        long delay = hedge ? health.p95Nanos() : -1;
+        if (delay < 0)
+            return primary;
+
+        CompletableFuture<HttpResponse<B>> winner = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        primary.whenComplete((response, error) -> settle(winner, running, response, error));
+        ScheduledFuture<?> hedgeTask = timer.schedule(() -> {
+            if (winner.isDone() || hedges.get() >= 1 + sent.get() / 10 || health.isOpen()
+                    || !rateLimiter.tryAcquire(request.uri().getHost()))
+                return;
+            running.incrementAndGet();
+            hedges.incrementAndGet();
+            PipelineMetrics.hedged.increment();
+            send(request, bodyHandler, health, attempt, true)
+                    .whenComplete((response, error) -> settle(winner, running, response, error));
+        }, delay, TimeUnit.NANOSECONDS);
+        winner.whenComplete((response, error) -> hedgeTask.cancel(false));
+        return winner;
+    }
+
+    /**
+     * The first response wins and a later one is discarded; an error only
+     * counts once no other request is still running.
+     */
+    private static <B> void settle(CompletableFuture<HttpResponse<B>> winner, AtomicInteger running,
+            HttpResponse<B> response, Throwable error) {
+        if (response != null) {
+            if (!winner.complete(response))
+                discard(response);
+        } else if (running.decrementAndGet() == 0) {
+            winner.completeExceptionally(error);
+        }
+    }
+
+    private <B> CompletableFuture<HttpResponse<B>> send(HttpRequest request, HttpResponse.BodyHandler<B> bodyHandler,
+            HostHealth health, int attempt, boolean duplicate) {
+        sent.incrementAndGet();
+        Events.HttpExchange event = new Events.HttpExchange();
+        event.uri = request.uri().toString();
+        event.attempt = attempt;
+        event.hedge = duplicate;
+        event.begin();
+        long start = System.nanoTime();
+        return client.sendAsync(request, bodyHandler)
+                .whenComplete((response, error) -> {
+                    if (response != null) {
+                        long nanos = System.nanoTime() - start;
+                        PipelineMetrics.httpLatency.record(nanos);
+                        health.recordLatency(nanos);
+                        event.status = response.statusCode();
+                    }
+                    event.commit();
+                });
+    }
+
+    /**
+     * Reads the response on a reader thread and hands the result on. If the
+     * read has not returned within the timeout the result fails, and the body
+     * is closed and the reader interrupted so a read blocked on a stalled body
+     * gives up; {@code then} is not bound by the timeout.
+     */
+    private <B, R, T> void complete(CompletableFuture<T> result, Handler<B, R, T> handler, HttpResponse<B> response) {
+        // 0 while reading, then READ or TIMED_OUT, whichever comes first
+        AtomicInteger state = new AtomicInteger();
+        AtomicReference<Thread> reader = new AtomicReference<>();
+        ScheduledFuture<?> deadline = timer.schedule(() -> {
+            if (!state.compareAndSet(0, TIMED_OUT))
+                return;
+            result.completeExceptionally(new HttpTimeoutException("response body not read within "
+                    + timeout.toSeconds() + " s"));
+            discard(response);
+            synchronized (reader) {
+                Thread t = reader.get();
+                if (t != null)
+                    t.interrupt();
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        readers.execute(() -> {
+            reader.set(Thread.currentThread());
+            R body = null;
+            Throwable error = null;
+            try {
+                if (state.get() == 0)
+                    body = handler.read().apply(response);
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                // No interrupt meant for this read may reach whatever the thread runs next
+                synchronized (reader) {
+                    reader.set(null);
+                    Thread.interrupted();
+                }
+            }
+            if (!state.compareAndSet(0, READ)) {
+                if (body instanceof AutoCloseable c)
+                    closeQuietly(c);
+                return;
+            }
+            deadline.cancel(false);
+            try {
+                if (error != null)
+                    result.completeExceptionally(error);
+                else
+                    result.complete(handler.then().apply(body));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /** Retry-After when the server sent one, else exponential with equal jitter, capped at 30 s. */
+    private long backoffNanos(int attempt, HttpResponse<?> response) {
+        if (response != null) {
+            String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+            if (retryAfter != null && retryAfter.matches("\\d+"))
+                return TimeUnit.SECONDS.toNanos(Math.min(Long.parseLong(retryAfter), MAX_BACKOFF_MILLIS / 1000));
+        }
+        long ceiling = Math.min(retryBaseMillis << Math.min(attempt, 16), MAX_BACKOFF_MILLIS);
+        return TimeUnit.MILLISECONDS.toNanos(ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1));
+    }
+
+    /** Closes the body of a response that will not be used, so its connection can be reused. */
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable body)
+            closeQuietly(body);
+    }
+
+    private static void closeQuietly(AutoCloseable body) {
+        try {
+            body.close();
+        } catch (Exception e) {
+            // Nothing to do for a body nobody reads
+        }
+    }
+}
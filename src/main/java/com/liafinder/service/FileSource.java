@@ -0,0 +1,71 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.PipelineMetrics;
+import com.liafinder.model.Listing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads saved responses in the JobTech search format ({@code {"hits": [...]}})
+ * from the files and directories under {@code sources.file.paths}. It can stand
+ * in for any feed that can be exported to that format, and it serves test
+ * fixtures. Hits go through the same filters as live JobTech results.
+ */
+public class FileSource implements ListingSource {
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public boolean enabledByDefault() {
+        return false;
+    }
+
+    /** publishedAfter is ignored: saved responses carry no publication time that is read here. */
+    @Override
+    public JobSearchService.FetchResult fetch(SearchProfile profile, Instant publishedAfter) throws IOException {
+        AppConfig.SourceConfig sc = ListingSource.config(profile.config(), name());
+        List<Path> files = new ArrayList<>();
+        for (String p : sc != null && sc.paths() != null ? sc.paths() : List.<String>of()) {
+            Path path = Paths.get(p);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    children.filter(f -> f.getFileName().toString().endsWith(".json")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        System.out.println("Reading listings from " + files.size() + " files...");
+        List<Listing> listings = new ArrayList<>();
+        int failed = 0;
+        PipelineMetrics.queries.add(files.size());
+        for (Path file : files) {
+            if (Thread.currentThread().isInterrupted())
+                break;
+            try (InputStream in = Files.newInputStream(file)) {
+                for (Listing l : JobSearchService.parseResponse(in, profile)) {
+                    l.source = "file:" + file.getFileName();
+                    listings.add(l);
+                }
+            } catch (IOException e) {
+                failed++;
+                PipelineMetrics.failedQueries.increment();
+                System.err.println("Error reading " + file + ": " + e.getMessage());
+            }
+        }
+        return new JobSearchService.FetchResult(listings, files.size(), failed);
+    }
+}
@@ -0,0 +1,92 @@
+package com.liafinder.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recent latency and a circuit breaker for one API host, shared by every
+ * {@link FetchEngine} in the process so that daemon polls keep them.
+ *
+ * <p>The latencies of the last {@value #WINDOW} responses are kept, and
+ * {@link FetchEngine} hedges a request that takes longer than their p95. The
+ * breaker opens after a number of failed requests in a row; while it is open
+ * requests fail without being sent. Once the open period is over a single
+ * probe request is let through, and its outcome closes or reopens the breaker.
+ */
+public class HostHealth {
+    private static final Map<String, HostHealth> hosts = new ConcurrentHashMap<>();
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 20;
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final long[] latencies = new long[WINDOW];
+    private int recorded;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    private HostHealth(String host) {
+        this.host = host;
+    }
+
+    public static HostHealth of(String host) {
+        return hosts.computeIfAbsent(host, HostHealth::new);
+    }
+
+    public synchronized void recordLatency(long nanos) {
+        latencies[recorded++ % WINDOW] = nanos;
+    }
+
+    /** The p95 latency of recent responses, or -1 while there are too few of them to tell. */
+    public long p95Nanos() {
+        long[] window;
+        synchronized (this) {
+            if (recorded < MIN_SAMPLES)
+                return -1;
+            window = Arrays.copyOf(latencies, Math.min(recorded, WINDOW));
+        }
+        Arrays.sort(window);
+        return window[(int) Math.ceil(0.95 * window.length) - 1];
+    }
+
+    /** Whether a request may be sent now; in the half-open state only the first caller gets to probe. */
+    public synchronized boolean tryAcquire(long now, long openNanos) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt < openNanos)
+                    return false;
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    public synchronized void onSuccess() {
+        failures = 0;
+        state = State.CLOSED;
+    }
+
+    /** Opens the breaker after {@code threshold} failures in a row, or at once when the probe failed. */
+    public synchronized void onFailure(long now, int threshold) {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= threshold) {
+            if (state != State.OPEN)
+                System.err.println("Too many failed requests to " + host + ", pausing requests to it.");
+            state = State.OPEN;
+            openedAt = now;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.liafinder.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spaces out requests per host so that at most {@code requestsPerSecond} are
+ * started against the same host. A value of 0 or less disables limiting.
+ */
+public class HostRateLimiter {
+    private final long intervalNanos;
+    private final Map<String, Long> nextSlot = new HashMap<>();
+
+    public HostRateLimiter(double requestsPerSecond) {
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (1_000_000_000L / requestsPerSecond) : 0L;
+    }
+
+    public void acquire(String host) throws InterruptedException {
+        if (intervalNanos == 0)
+            return;
+
+        long now = System.nanoTime();
+        long waitNanos = reserve(host, now) - now;
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        }
+    }
+
+    /** Reserves the first slot at or after {@code notBefore} (a nanoTime) without waiting; returns its time. */
+    public long reserve(String host, long notBefore) {
+        if (intervalNanos == 0)
+            return notBefore;
+        synchronized (nextSlot) {
+            long slot = Math.max(notBefore, nextSlot.getOrDefault(host, notBefore));
+            nextSlot.put(host, slot + intervalNanos);
+            return slot;
+        }
+    }
+
+    /** Takes a slot only if one is free right now. */
+    public boolean tryAcquire(String host) {
+        if (intervalNanos == 0)
+            return true;
+        long now = System.nanoTime();
+        synchronized (nextSlot) {
+            if (nextSlot.getOrDefault(host, now) > now)
+                return false;
+            nextSlot.put(host, now + intervalNanos);
+            return true;
+        }
+    }
+}
@@ -1,213 +1,482 @@
 package com.liafinder.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.CountingInputStream;
+import com.liafinder.metrics.Events;
+import com.liafinder.metrics.PipelineMetrics;
 import com.liafinder.model.Listing;
 
-import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 public class JobSearchService {
-    private static final String API_ENDPOINT = "https://jobsearch.api.jobtechdev.se/search";
-    private static final HttpClient client = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
     private static final ObjectMapper mapper = new ObjectMapper();
 
-    public static List<Listing> fetchListings(AppConfig cfg) {
-        String apiKey = System.getenv("JOBTECH_API_KEY");
-        if (apiKey == null || apiKey.isBlank()) {
-            System.err.println("Warning: JOBTECH_API_KEY environment variable not set. Cannot fetch listings.");
-            return List.of();
-        }
+    // Filter vocabulary, compiled together with the config terms into a TermMatcher
+    static final List<String> EXCLUSION_TERMS = List.of(
+            "chef", "manager", "ledare", "senior", "principal", "specialist",
+            "erfaren", "tillsvidare", "fast anställning", "hel-tid", "fullstack-utvecklare till",
+            "vi söker en", "working at", "apply now", "provanställning", "omgående");
+    static final List<String> HARD_EXCLUSION_TERMS = List.of("tillsvidare", "fast anställning");
+    static final List<String> TITLE_EXCLUSION_TERMS = List.of("chef", "manager", "senior");
+    static final List<String> DEFAULT_LIA_TERMS = List.of("LIA", "praktik", "intern", "yh-");
 
-        List<Listing> allListings = new ArrayList<>();
-        List<String> queries = buildQueries(cfg);
-        int limit = (cfg.search().query() != null) ? cfg.search().query().maxPerQuery() : 50;
+    // Source threads are daemons so a source that ignores its timeout cannot keep the JVM alive
+    private static final ExecutorService sourceExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "lia-source");
+        t.setDaemon(true);
+        return t;
+    });
 
-        System.out.println("Fetching listings for " + queries.size() + " queries...");
+    /**
+     * Outcome of one fetch round; failedQueries counts queries that errored or
+     * returned non-200, plus one for every source that failed or timed out as a whole.
+     */
+    public record FetchResult(List<Listing> listings, int queries, int failedQueries) {
+    }
 
-        for (String q : queries) {
-            try {
-                String encodedQ = URLEncoder.encode(q, StandardCharsets.UTF_8);
-                String uri = API_ENDPOINT + "?q=" + encodedQ + "&limit=" + limit;
-
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(uri))
-                        .header("accept", "application/json")
-                        .header("api-key", apiKey)
-                        .header("User-Agent", "LIA_FINDER_AI_ASSISTANT_JAVA/1.0")
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-                if (response.statusCode() == 200) {
-                    allListings.addAll(parseResponse(response.body(), cfg));
-                } else {
-                    System.err.println("Failed to fetch for query '" + q + "': " + response.statusCode());
-                }
+    /** One parsed response: the listings that passed the filters, out of {@code hits} hits. */
+    record Page(List<Listing> listings, int hits) {
+    }
+
+    /**
+     * Runs every enabled {@link ListingSource} concurrently and merges their
+     * listings, in source order, into one deduplicated list. A source that has
+     * not finished within its {@code timeout_seconds} is cancelled and the
+     * others' listings are returned without it.
+     */
+    public static FetchResult fetch(SearchProfile profile, Instant publishedAfter) {
+        FetchResult result = fetch(profile, publishedAfter, null);
+        return new FetchResult(removeDuplicates(result.listings()), result.queries(), result.failedQueries());
+    }
+
+    /**
+     * Like {@link #fetch(SearchProfile, Instant)}, but hands every batch of
+     * filtered listings to {@code pages} as soon as a source has it, from the
+     * source's threads, and returns only the counts. Listings are not
+     * deduplicated. With a null consumer the listings are collected instead.
+     */
+    public static FetchResult fetch(SearchProfile profile, Instant publishedAfter, Consumer<List<Listing>> pages) {
+        AppConfig cfg = profile.config();
+        List<ListingSource> sources = ListingSource.enabled(cfg);
+        if (sources.isEmpty()) {
+            System.err.println("Warning: no listing sources enabled.");
+            return new FetchResult(List.of(), 0, 0);
+        }
+
+        long start = System.nanoTime();
+        List<Future<FetchResult>> pending = new ArrayList<>();
+        for (ListingSource source : sources) {
+            pending.add(sourceExecutor.submit(() -> pages != null ? source.fetch(profile, publishedAfter, pages)
+                    : source.fetch(profile, publishedAfter)));
+        }
 
-            } catch (Exception e) {
-                System.err.println("Error fetching query '" + q + "': " + e.getMessage());
+        List<Listing> allListings = new ArrayList<>();
+        int queries = 0;
+        int failed = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            ListingSource source = sources.get(i);
+            Future<FetchResult> future = pending.get(i);
+            // Every source's deadline counts from the common start
+            long remaining = start + ListingSource.timeout(cfg, source).toNanos() - System.nanoTime();
+            try {
+                FetchResult result = future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                allListings.addAll(result.listings());
+                queries += result.queries();
+                failed += result.failedQueries();
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failed++;
+                System.err.println("Source '" + source.name() + "' timed out after "
+                        + ListingSource.timeout(cfg, source).toSeconds() + "s, continuing without it.");
+            } catch (ExecutionException e) {
+                failed++;
+                System.err.println("Source '" + source.name() + "' failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                pending.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
             }
         }
 
-        return removeDuplicates(allListings);
+        return new FetchResult(allListings, queries, failed);
     }
 
-    private static List<String> buildQueries(AppConfig cfg) {
-        List<String> locations = cfg.search().locations() != null ? cfg.search().locations() : List.of("Stockholm");
-        String loc = String.join(" ", locations);
-
-        List<String> base = new ArrayList<>(List.of(
-                "LIA Java " + loc,
-                "praktik Java " + loc,
-                "\"lärande i arbete\" Java " + loc,
-                "yrkeshögskola Java " + loc,
-                "internship Java " + loc,
-                "LIA Spring Boot " + loc,
-                "praktik Spring Boot " + loc,
-                "LIA backend Java " + loc,
-                "praktik backend Java " + loc));
+    /** Outcome of the filter stages for one hit. */
+    private enum Verdict {
+        ACCEPTED, EXCLUSION, WRONG_TITLE, NO_LIA, TOO_EARLY
+    }
 
-        // Note: For Oct 2026, most current ads are irrelevant.
-        // We will filter heavily in parseResponse.
-        return new ArrayList<>(new HashSet<>(base));
+    /**
+     * Streams the {@code hits} array of a JobTech search response and applies the
+     * filter stages while each hit is read, so only one hit is held in memory at a
+     * time. When the headline already rules a hit out, its description is skipped
+     * without being materialized. With a null profile every hit is kept, for
+     * {@link #filterListings} to filter later.
+     */
+    static List<Listing> parseResponse(InputStream body, SearchProfile profile) {
+        return parsePage(body, profile).listings();
     }
 
-    private static List<Listing> parseResponse(String jsonBody, AppConfig cfg) {
+    /** Like {@link #parseResponse}, also returning the number of hits before filtering. */
+    static Page parsePage(InputStream body, SearchProfile profile) {
+        TermMatcher matcher = profile != null ? profile.matcher() : null;
+        DateExtractor.Mentions dates = profile != null && profile.dates() != null ? profile.dates().newMentions()
+                : null;
         List<Listing> listings = new ArrayList<>();
+        int hits = 0;
         int droppedExclusion = 0;
         int droppedNoLia = 0;
         int droppedWrongTitle = 0;
+        int droppedTooEarly = 0;
 
-        try {
-            JsonNode root = mapper.readTree(jsonBody);
-            JsonNode hits = root.path("hits");
-            if (hits.isArray()) {
-                for (JsonNode hit : hits) {
-                    String title = hit.path("headline").asText("");
-                    if (title.isEmpty())
-                        title = hit.path("title").asText("");
-                    String employer = hit.path("employer").path("name").asText("");
-
-                    String description = "";
-                    JsonNode descNode = hit.path("description");
-                    if (descNode.isObject()) {
-                        description = descNode.path("text").asText("");
-                    } else if (descNode.isTextual()) {
-                        description = descNode.asText();
-                    }
+        Events.ResponseParsed event = new Events.ResponseParsed();
+        event.begin();
+        CountingInputStream counted = new CountingInputStream(body);
+        try (JsonParser parser = mapper.getFactory().createParser(counted)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                return new Page(listings, 0);
 
-                    String titleL = title.toLowerCase();
-                    String combinedL = (titleL + "\n" + description.toLowerCase());
-
-                    // --- STAGE 1: EXCLUSION TERMS (Strict) ---
-                    List<String> badTerms = new ArrayList<>(List.of(
-                            "chef", "manager", "ledare", "senior", "principal", "specialist",
-                            "erfaren", "tillsvidare", "fast anställning", "hel-tid", "fullstack-utvecklare till",
-                            "vi söker en", "working at", "apply now", "provanställning", "omgående"));
-                    if (cfg.search().notLiaTerms() != null)
-                        badTerms.addAll(cfg.search().notLiaTerms());
-                    if (cfg.linkedin() != null && cfg.linkedin().notLiaTerms() != null)
-                        badTerms.addAll(cfg.linkedin().notLiaTerms());
-
-                    if (containsAny(combinedL, badTerms)) {
-                        // Exception: If it's a LIA ad it might still have "apply now" or "omgående" in
-                        // some cases,
-                        // but for "Senior" or "Chef" it's a hard drop.
-                        if (titleL.contains("chef") || titleL.contains("manager") || titleL.contains("senior")) {
-                            droppedExclusion++;
-                            continue;
-                        }
-                        if (containsAny(combinedL, List.of("tillsvidare", "fast anställning"))) {
-                            droppedExclusion++;
-                            continue;
-                        }
-                    }
+            HitFields hit = new HitFields(matcher != null ? matcher.newHits() : null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!"hits".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
 
-                    // --- STAGE 2: TITLE RELEVANCE (Very Strict) ---
-                    // Actual LIA ads ALMOST ALWAYS put LIA/Praktik/Intern in the title.
-                    // If the title is just "Javautvecklare", it's 99% a permanent job.
-                    List<String> liaKeywords = cfg.search().liaTerms() != null ? cfg.search().liaTerms()
-                            : List.of("LIA", "praktik", "intern", "yh-");
-                    boolean titleHasLia = containsAny(titleL, liaKeywords);
-
-                    if (!titleHasLia) {
-                        // If title doesn't have LIA term, check if it's broad like "Developer"
-                        // but then it MUST have a LIA term very early in description or be special.
-                        // To be safe for the user, we'll drop it if title is totally generic.
-                        droppedWrongTitle++;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    hits++;
+                    hit.reset();
+                    readHit(parser, hit, matcher);
+                    if (matcher == null) {
+                        listings.add(toListing(hit));
                         continue;
                     }
 
-                    // --- STAGE 3: MANDATORY CONTEXT ---
-                    if (!containsAny(combinedL, liaKeywords)) {
-                        droppedNoLia++;
-                        continue;
-                    }
+                    String title = hit.title();
+                    TermMatcher.Hits terms = hit.terms;
 
-                    // --- STAGE 4: DATE ANALYSIS ---
-                    // If the ad mentions "2025" and NOT "2026", it's likely too early.
-                    if (combinedL.contains("2025") && !combinedL.contains("2026")) {
-                        // continue; // Temporarily disabled to not be TOO aggressive, but likely
-                        // correct.
+                    // --- Rejected on headline alone (description was never read) ---
+                    if (hit.titleRejected) {
+                        if (terms.inTitle(TermMatcher.Group.TITLE_EXCLUSION)) {
+                            droppedExclusion++;
+                        } else {
+                            droppedWrongTitle++;
+                        }
+                        continue;
                     }
 
-                    JsonNode wp = hit.path("workplace_address");
-                    String location = wp.path("municipality").asText("");
-                    if (location.isEmpty())
-                        location = wp.path("city").asText("");
+                    if (!hit.titleScanned)
+                        matcher.scan(terms, title, TermMatcher.TITLE);
+                    String description = hit.description != null ? hit.description : "";
+                    matcher.scan(terms, description, TermMatcher.DESCRIPTION);
 
-                    String adId = hit.path("id").asText("");
-                    String url = hit.path("webpage_url").asText("");
-                    if (url.isEmpty() && !adId.isEmpty()) {
-                        url = "https://platsbanken.se/annons/" + adId;
+                    switch (filter(terms, dates, title, description)) {
+                        case EXCLUSION -> droppedExclusion++;
+                        case WRONG_TITLE -> droppedWrongTitle++;
+                        case NO_LIA -> droppedNoLia++;
+                        case TOO_EARLY -> droppedTooEarly++;
+                        case ACCEPTED -> listings.add(toListing(hit));
                     }
-
-                    listings.add(new Listing(title, employer, location, url, description, "JobTech"));
                 }
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        System.out.println("  Filtered: " + droppedNoLia + " no LIA terms, "
-                + droppedExclusion + " non-LIA roles, " + droppedWrongTitle + " generic titles (non-LIA).");
+        PipelineMetrics.responseBytes.add(counted.count());
+        PipelineMetrics.hits.add(hits);
+        event.bytes = counted.count();
+        event.hits = hits;
+        if (matcher != null) {
+            System.out.println("  Filtered: " + droppedNoLia + " no LIA terms, "
+                    + droppedExclusion + " non-LIA roles, " + droppedWrongTitle + " generic titles (non-LIA), "
+                    + droppedTooEarly + " for an earlier period.");
+            PipelineMetrics.accepted.add(listings.size());
+            PipelineMetrics.droppedExclusion.add(droppedExclusion);
+            PipelineMetrics.droppedWrongTitle.add(droppedWrongTitle);
+            PipelineMetrics.droppedNoLia.add(droppedNoLia);
+            PipelineMetrics.droppedTooEarly.add(droppedTooEarly);
+            event.accepted = listings.size();
+            event.droppedExclusion = droppedExclusion;
+            event.droppedWrongTitle = droppedWrongTitle;
+            event.droppedNoLia = droppedNoLia;
+            event.droppedTooEarly = droppedTooEarly;
+        }
+        event.commit();
 
+        return new Page(listings, hits);
+    }
+
+    /**
+     * Applies the filter stages to listings parsed without a matcher, with the
+     * same decisions {@link #parseResponse} makes while streaming: the title
+     * alone is checked first and the description only scanned when it passes.
+     */
+    static List<Listing> filterListings(List<Listing> raw, SearchProfile profile) {
+        TermMatcher matcher = profile.matcher();
+        DateExtractor.Mentions dates = profile.dates() != null ? profile.dates().newMentions() : null;
+        List<Listing> listings = new ArrayList<>();
+        int droppedExclusion = 0;
+        int droppedNoLia = 0;
+        int droppedWrongTitle = 0;
+        int droppedTooEarly = 0;
+        TermMatcher.Hits terms = matcher.newHits();
+        for (Listing l : raw) {
+            // Cached on the listing, so a batch reuses it for every student with the same normalizer
+            String title = l.title != null ? l.normalizedTitle(matcher.normalizer()) : "";
+            String description = l.description != null ? l.normalizedDescription(matcher.normalizer()) : "";
+            terms.clear();
+            matcher.scan(terms, title, TermMatcher.TITLE);
+            if (terms.inTitle(TermMatcher.Group.TITLE_EXCLUSION)) {
+                droppedExclusion++;
+                continue;
+            }
+            if (!terms.inTitle(TermMatcher.Group.LIA_FILTER)) {
+                droppedWrongTitle++;
+                continue;
+            }
+            matcher.scan(terms, description, TermMatcher.DESCRIPTION);
+            switch (filter(terms, dates, title, description)) {
+                case EXCLUSION -> droppedExclusion++;
+                case WRONG_TITLE -> droppedWrongTitle++;
+                case NO_LIA -> droppedNoLia++;
+                case TOO_EARLY -> droppedTooEarly++;
+                case ACCEPTED -> listings.add(l);
+            }
+        }
+        PipelineMetrics.accepted.add(listings.size());
+        PipelineMetrics.droppedExclusion.add(droppedExclusion);
+        PipelineMetrics.droppedWrongTitle.add(droppedWrongTitle);
+        PipelineMetrics.droppedNoLia.add(droppedNoLia);
+        PipelineMetrics.droppedTooEarly.add(droppedTooEarly);
         return listings;
     }
 
-    private static boolean containsAny(String text, List<String> terms) {
-        if (terms == null || text == null)
-            return false;
-        String lowerText = text.toLowerCase();
-        for (String term : terms) {
-            if (lowerText.contains(term.toLowerCase()))
-                return true;
+    /**
+     * The filter stages, given the title and description matches in
+     * {@code terms}. The dates are only scanned for listings that pass the
+     * other stages; without a LIA period ({@code dates} null) there is no
+     * date stage.
+     */
+    private static Verdict filter(TermMatcher.Hits terms, DateExtractor.Mentions dates, String title,
+            String description) {
+        // --- STAGE 1: EXCLUSION TERMS (Strict) ---
+        if (terms.any(TermMatcher.Group.EXCLUSION)) {
+            // Exception: If it's a LIA ad it might still have "apply now" or "omgående" in
+            // some cases,
+            // but for "Senior" or "Chef" it's a hard drop.
+            if (terms.inTitle(TermMatcher.Group.TITLE_EXCLUSION))
+                return Verdict.EXCLUSION;
+            if (terms.any(TermMatcher.Group.HARD_EXCLUSION))
+                return Verdict.EXCLUSION;
         }
-        return false;
+
+        // --- STAGE 2: TITLE RELEVANCE (Very Strict) ---
+        // Actual LIA ads ALMOST ALWAYS put LIA/Praktik/Intern in the title.
+        // If the title is just "Javautvecklare", it's 99% a permanent job.
+        boolean titleHasLia = terms.inTitle(TermMatcher.Group.LIA_FILTER);
+
+        if (!titleHasLia) {
+            // If title doesn't have LIA term, check if it's broad like "Developer"
+            // but then it MUST have a LIA term very early in description or be special.
+            // To be safe for the user, we'll drop it if title is totally generic.
+            return Verdict.WRONG_TITLE;
+        }
+
+        // --- STAGE 3: MANDATORY CONTEXT ---
+        if (!terms.any(TermMatcher.Group.LIA_FILTER))
+            return Verdict.NO_LIA;
+
+        // --- STAGE 4: DATE ANALYSIS ---
+        // If the ad mentions the year before the LIA start and no later year, it's likely last year's ad.
+        if (dates != null) {
+            dates.clear();
+            dates.scan(title);
+            dates.scan(description);
+            if (dates.tooEarly())
+                return Verdict.TOO_EARLY;
+        }
+        return Verdict.ACCEPTED;
     }
 
-    private static List<Listing> removeDuplicates(List<Listing> raw) {
-        List<Listing> uniq = new ArrayList<>();
-        Set<String> seenUrls = new HashSet<>();
-        for (Listing l : raw) {
-            if (l.url != null && !seenUrls.contains(l.url)) {
-                seenUrls.add(l.url);
-                uniq.add(l);
+    private static Listing toListing(HitFields hit) {
+        String location = hit.municipality;
+        if (location.isEmpty())
+            location = hit.city;
+
+        String url = hit.webpageUrl;
+        if (url.isEmpty() && !hit.id.isEmpty()) {
+            url = "https://platsbanken.se/annons/" + hit.id;
+        }
+
+        String description = hit.description != null ? hit.description : "";
+        Listing listing = new Listing(hit.title(), hit.employer, location, url, description, "JobTech");
+        if (!hit.id.isEmpty())
+            listing.id = hit.id;
+        return listing;
+    }
+
+    /** Fields of a single hit; reused across hits of one response. */
+    private static class HitFields {
+        final TermMatcher.Hits terms;
+        String id;
+        String headline;
+        String fallbackTitle;
+        String employer;
+        String description;
+        String municipality;
+        String city;
+        String webpageUrl;
+        boolean titleScanned;
+        boolean titleRejected;
+
+        HitFields(TermMatcher.Hits terms) {
+            this.terms = terms;
+        }
+
+        void reset() {
+            if (terms != null)
+                terms.clear();
+            id = "";
+            headline = "";
+            fallbackTitle = "";
+            employer = "";
+            description = null;
+            municipality = "";
+            city = "";
+            webpageUrl = "";
+            titleScanned = false;
+            titleRejected = false;
+        }
+
+        String title() {
+            return headline.isEmpty() ? fallbackTitle : headline;
+        }
+    }
+
+    private static void readHit(JsonParser parser, HitFields hit, TermMatcher matcher) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> hit.id = textOrEmpty(parser, value);
+                case "webpage_url" -> hit.webpageUrl = textOrEmpty(parser, value);
+                case "title" -> hit.fallbackTitle = textOrEmpty(parser, value);
+                case "headline" -> {
+                    hit.headline = textOrEmpty(parser, value);
+                    // The headline wins over "title", so it can decide the title stages on its own
+                    if (matcher != null && !hit.headline.isEmpty()) {
+                        matcher.scan(hit.terms, hit.headline, TermMatcher.TITLE);
+                        hit.titleScanned = true;
+                        hit.titleRejected = hit.terms.inTitle(TermMatcher.Group.TITLE_EXCLUSION)
+                                || !hit.terms.inTitle(TermMatcher.Group.LIA_FILTER);
+                    }
+                }
+                case "description" -> {
+                    if (hit.titleRejected) {
+                        parser.skipChildren();
+                    } else if (value == JsonToken.START_OBJECT) {
+                        hit.description = readObjectField(parser, "text");
+                    } else {
+                        hit.description = textOrEmpty(parser, value);
+                    }
+                }
+                case "employer" -> hit.employer = value == JsonToken.START_OBJECT ? readObjectField(parser, "name")
+                        : skipValue(parser);
+                case "workplace_address" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String addrField = parser.getCurrentName();
+                            JsonToken addrValue = parser.nextToken();
+                            if ("municipality".equals(addrField)) {
+                                hit.municipality = textOrEmpty(parser, addrValue);
+                            } else if ("city".equals(addrField)) {
+                                hit.city = textOrEmpty(parser, addrValue);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /** Reads one scalar field out of the current object and skips everything else in it. */
+    private static String readObjectField(JsonParser parser, String wanted) throws IOException {
+        String result = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (wanted.equals(field)) {
+                result = textOrEmpty(parser, value);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    private static String textOrEmpty(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return "";
+        }
+        if (value == JsonToken.VALUE_NULL)
+            return "";
+        return parser.getValueAsString("");
+    }
+
+    private static String skipValue(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return "";
+    }
+
+    /**
+     * Drops listings without a URL, repeated URLs and near-duplicates (reposts
+     * of the same ad, see {@link NearDuplicateDetector}); the first listing of
+     * each cluster is kept.
+     */
+    static List<Listing> removeDuplicates(List<Listing> raw) {
+        return new Deduplicator().unique(raw);
+    }
+
+    /** {@link #removeDuplicates} for listings that arrive in batches; not thread-safe. */
+    static final class Deduplicator {
+        private final Set<String> seenUrls = new HashSet<>();
+        private final NearDuplicateDetector detector = new NearDuplicateDetector();
+
+        /** The listings of the batch that were not seen in this or an earlier batch. */
+        List<Listing> unique(List<Listing> batch) {
+            List<Listing> uniq = new ArrayList<>();
+            for (Listing l : batch) {
+                if (l.url != null && seenUrls.add(l.url) && !detector.isRepost(l)) {
+                    uniq.add(l);
+                }
             }
+            PipelineMetrics.duplicatesRemoved.add(batch.size() - uniq.size());
+            return uniq;
         }
-        return uniq;
     }
 }
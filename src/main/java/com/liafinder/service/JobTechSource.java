@@ -0,0 +1,326 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.PipelineMetrics;
+import com.liafinder.model.Listing;
+import com.liafinder.store.HttpCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Arbetsförmedlingen's JobTech search API (Platsbanken). {@code endpoint}
+ * under {@code sources.jobtech} points it elsewhere, e.g. at a local stand-in;
+ * an API key is then only sent when one is set.
+ */
+public class JobTechSource implements ListingSource {
+    private static final String API_ENDPOINT = "https://jobsearch.api.jobtechdev.se/search";
+    private static final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private static final ZoneId API_ZONE = ZoneId.of("Europe/Stockholm");
+
+    @Override
+    public String name() {
+        return "jobtech";
+    }
+
+    @Override
+    public boolean enabledByDefault() {
+        return true;
+    }
+
+    /**
+     * Runs every query once. When {@code publishedAfter} is set, only ads
+     * published after that instant are requested.
+     */
+    @Override
+    public JobSearchService.FetchResult fetch(SearchProfile profile, Instant publishedAfter) {
+        return fetch(profile, publishedAfter, null);
+    }
+
+    /**
+     * Hands each page over as soon as it is parsed, on the thread that read
+     * it; a consumer that blocks holds back further requests. With a null
+     * consumer the pages are collected in query order instead.
+     */
+    @Override
+    public JobSearchService.FetchResult fetch(SearchProfile profile, Instant publishedAfter,
+            Consumer<List<Listing>> pages) {
+        AppConfig cfg = profile.config();
+        HttpCache cache = openCache(cfg, publishedAfter);
+        String endpoint = endpoint(cfg);
+        if (!canFetch(cache, endpoint))
+            return new JobSearchService.FetchResult(List.of(), 0, 0);
+
+        List<QueryPlanner.Query> plan = profile.plan();
+        int limit = profile.maxPerQuery();
+        System.out.println((cache != null && cache.isOffline() ? "Reading cached listings for "
+                : "Fetching listings for ") + plan.size() + " queries...");
+
+        String since = "";
+        if (publishedAfter != null) {
+            LocalDateTime local = LocalDateTime.ofInstant(publishedAfter, API_ZONE).truncatedTo(ChronoUnit.SECONDS);
+            since = "&published-after=" + URLEncoder.encode(local.toString(), StandardCharsets.UTF_8);
+        }
+
+        // Pages are fetched in rounds: the first page of every query, then the next page of those still paying off
+        List<QueryPlanner.Progress> progress = new ArrayList<>();
+        List<List<Listing>> perQuery = new ArrayList<>();
+        List<Integer> active = new ArrayList<>();
+        for (int i = 0; i < plan.size(); i++) {
+            progress.add(new QueryPlanner.Progress(plan.get(i), profile.paging()));
+            perQuery.add(new ArrayList<>());
+            active.add(i);
+        }
+
+        // One engine for all rounds, so the rate limit, concurrency and hedge budget span the whole fetch
+        FetchEngine engine = new FetchEngine(client, cfg.fetch());
+        AtomicInteger failed = new AtomicInteger();
+        // Unique in the sense of removeDuplicates: a new URL that is not a repost of an ad already found
+        Set<String> seenUrls = new HashSet<>();
+        NearDuplicateDetector seen = new NearDuplicateDetector();
+        while (!active.isEmpty() && !Thread.currentThread().isInterrupted()) {
+            List<String> queries = new ArrayList<>();
+            List<URI> uris = new ArrayList<>();
+            for (int i : active) {
+                int offset = progress.get(i).offset();
+                queries.add(plan.get(i).text());
+                uris.add(uri(endpoint, plan.get(i).text(), limit, since + (offset > 0 ? "&offset=" + offset : "")));
+                if (offset > 0)
+                    PipelineMetrics.extraPages.increment();
+            }
+            List<JobSearchService.Page> fetched = fetchAll(engine, cache, queries, uris, body -> {
+                JobSearchService.Page page = JobSearchService.parsePage(body, profile);
+                if (pages != null)
+                    pages.accept(page.listings());
+                return page;
+            }, failed);
+
+            List<Integer> next = new ArrayList<>();
+            for (int a = 0; a < active.size(); a++) {
+                int i = active.get(a);
+                JobSearchService.Page page = fetched.get(a);
+                if (page == null)
+                    continue;
+                int unique = 0;
+                for (Listing l : page.listings()) {
+                    if (l.url != null && seenUrls.add(l.url) && !seen.isRepost(l))
+                        unique++;
+                }
+                if (pages == null)
+                    perQuery.get(i).addAll(page.listings());
+                if (progress.get(i).next(limit, page.hits(), page.listings().size(), unique))
+                    next.add(i);
+            }
+            active = next;
+        }
+
+        List<Listing> allListings = new ArrayList<>();
+        perQuery.forEach(allListings::addAll);
+        return new JobSearchService.FetchResult(allListings, plan.size(), failed.get());
+    }
+
+    /**
+     * Raw response bodies of full (not incremental) searches, one request per
+     * query with its own limit, through the HTTP cache; null where a query
+     * failed. Lets batch mode fetch a query once for several profiles.
+     */
+    static List<byte[]> fetchBodies(AppConfig cfg, List<String> queries, List<Integer> limits) {
+        HttpCache cache = openCache(cfg, null);
+        String endpoint = endpoint(cfg);
+        List<byte[]> none = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        if (!canFetch(cache, endpoint))
+            return none;
+
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            uris.add(uri(endpoint, queries.get(i), limits.get(i), ""));
+        }
+        return fetchAll(new FetchEngine(client, cfg.fetch()), cache, queries, uris, body -> {
+            try (body) {
+                return body.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, new AtomicInteger());
+    }
+
+    /** The configured {@code sources.jobtech.endpoint}, or the public API. */
+    private static String endpoint(AppConfig cfg) {
+        AppConfig.SourceConfig sc = ListingSource.config(cfg, "jobtech");
+        return (sc != null && sc.endpoint() != null && !sc.endpoint().isBlank()) ? sc.endpoint() : API_ENDPOINT;
+    }
+
+    private static String apiKey() {
+        String apiKey = System.getenv("JOBTECH_API_KEY");
+        return apiKey != null && !apiKey.isBlank() ? apiKey : null;
+    }
+
+    /** The public API needs a key unless everything comes from the offline cache. */
+    private static boolean canFetch(HttpCache cache, String endpoint) {
+        boolean offline = cache != null && cache.isOffline();
+        if (!offline && apiKey() == null && endpoint.equals(API_ENDPOINT)) {
+            System.err.println("Warning: JOBTECH_API_KEY environment variable not set. Cannot fetch listings.");
+            return false;
+        }
+        return true;
+    }
+
+    private static URI uri(String endpoint, String query, int limit, String since) {
+        return URI.create(endpoint + "?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8) + "&limit=" + limit
+                + since);
+    }
+
+    /**
+     * Requests every URI concurrently (cache permitting) and parses each
+     * response body; the results come back in request order, with null for a
+     * request that failed, timed out or had no cached response offline.
+     */
+    private static <T> List<T> fetchAll(FetchEngine engine, HttpCache cache, List<String> queries, List<URI> uris,
+            Function<InputStream, T> parse, AtomicInteger failed) {
+        boolean offline = cache != null && cache.isOffline();
+        String apiKey = apiKey();
+        List<CompletableFuture<T>> pending = new ArrayList<>();
+
+        PipelineMetrics.queries.add(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            String q = queries.get(i);
+            URI uri = uris.get(i);
+            // Timed out by JobSearchService: stop queueing requests
+            if (Thread.currentThread().isInterrupted())
+                break;
+
+            HttpCache.Entry cached = cache != null ? cache.lookup(uri) : null;
+            if (cached != null && (offline || cache.isFresh(cached))) {
+                PipelineMetrics.cacheHits.increment();
+                pending.add(CompletableFuture.supplyAsync(() -> parseCached(cache, cached, parse))
+                        .exceptionally(e -> {
+                            failed.incrementAndGet();
+                            PipelineMetrics.failedQueries.increment();
+                            System.err.println("Error reading cached query '" + q + "': " + e.getMessage());
+                            return null;
+                        }));
+                continue;
+            }
+            if (offline) {
+                System.err.println("Offline: no cached response for query '" + q + "'.");
+                pending.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .uri(uri)
+                    .header("accept", "application/json")
+                    .header("User-Agent", "LIA_FINDER_AI_ASSISTANT_JAVA/1.0")
+                    .GET();
+            if (apiKey != null)
+                request.header("api-key", apiKey);
+            if (cache != null)
+                cache.addConditionalHeaders(request, cached);
+
+            // Only getting the body off the connection is bound by the request timeout; parsing and handing the
+            // page on may wait for the consumer
+            pending.add(engine.submit(request.build(), HttpResponse.BodyHandlers.ofInputStream(), response -> {
+                try {
+                    if (response.statusCode() == 304 && cached != null) {
+                        closeQuietly(response.body());
+                        PipelineMetrics.notModified.increment();
+                        return cache.openBody(cache.touch(cached));
+                    }
+                    if (response.statusCode() == 200) {
+                        if (cache != null)
+                            return cache.openBody(cache.store(uri, response.headers(), response.body()));
+                        try (InputStream body = response.body()) {
+                            return new ByteArrayInputStream(body.readAllBytes());
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                closeQuietly(response.body());
+                failed.incrementAndGet();
+                PipelineMetrics.failedQueries.increment();
+                System.err.println("Failed to fetch for query '" + q + "': " + response.statusCode());
+                return (InputStream) null;
+            }, body -> body != null ? parse.apply(body) : null).exceptionally(e -> {
+                Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                failed.incrementAndGet();
+                PipelineMetrics.failedQueries.increment();
+                System.err.println("Error fetching query '" + q + "': " + cause.getMessage());
+                return null;
+            }));
+        }
+
+        // Collect in query order so removeDuplicates keeps the same winner as a sequential run
+        List<T> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                results.set(i, pending.get(i).get());
+            } catch (InterruptedException e) {
+                pending.forEach(p -> p.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | CancellationException e) {
+                // Failures were already counted and reported by exceptionally()
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The cache is only used for full fetches; incremental daemon polls carry a
+     * new published-after value every time and would never hit.
+     */
+    private static HttpCache openCache(AppConfig cfg, Instant publishedAfter) {
+        if (publishedAfter != null)
+            return null;
+        try {
+            return HttpCache.open(cfg);
+        } catch (IOException e) {
+            System.err.println("Warning: HTTP cache unavailable, fetching without it: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static <T> T parseCached(HttpCache cache, HttpCache.Entry entry, Function<InputStream, T> parse) {
+        try {
+            return parse.apply(cache.openBody(entry));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
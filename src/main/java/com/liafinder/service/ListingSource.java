@@ -0,0 +1,66 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.Listing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
+
+/**
+ * A place listings come from. Implementations are found with
+ * {@link ServiceLoader} (listed in
+ * {@code META-INF/services/com.liafinder.service.ListingSource}) and switched
+ * on or off under {@code sources.<name>} in config.yaml.
+ *
+ * <p>{@link #fetch} runs on its own thread and is interrupted when the source
+ * exceeds its timeout. Sources return listings that already passed the
+ * filters and leave deduplication to {@link JobSearchService#fetch}.
+ */
+public interface ListingSource {
+    Duration DEFAULT_TIMEOUT = Duration.ofSeconds(120);
+
+    /** Key of this source under {@code sources:} in config.yaml. */
+    String name();
+
+    /** Whether the source runs when config.yaml says nothing about it. */
+    boolean enabledByDefault();
+
+    /** Listings published after {@code publishedAfter} where the source supports that, otherwise all. */
+    JobSearchService.FetchResult fetch(SearchProfile profile, Instant publishedAfter) throws Exception;
+
+    /**
+     * Same, handing batches of listings to {@code pages} as they become
+     * available instead of returning them. Sources that cannot do better hand
+     * over everything at the end.
+     */
+    default JobSearchService.FetchResult fetch(SearchProfile profile, Instant publishedAfter,
+            Consumer<List<Listing>> pages) throws Exception {
+        JobSearchService.FetchResult result = fetch(profile, publishedAfter);
+        pages.accept(result.listings());
+        return new JobSearchService.FetchResult(List.of(), result.queries(), result.failedQueries());
+    }
+
+    static List<ListingSource> enabled(AppConfig cfg) {
+        List<ListingSource> sources = new ArrayList<>();
+        for (ListingSource source : ServiceLoader.load(ListingSource.class)) {
+            AppConfig.SourceConfig sc = config(cfg, source.name());
+            boolean on = (sc != null && sc.enabled() != null) ? sc.enabled() : source.enabledByDefault();
+            if (on)
+                sources.add(source);
+        }
+        return sources;
+    }
+
+    static AppConfig.SourceConfig config(AppConfig cfg, String name) {
+        return cfg.sources() != null ? cfg.sources().get(name) : null;
+    }
+
+    static Duration timeout(AppConfig cfg, ListingSource source) {
+        AppConfig.SourceConfig sc = config(cfg, source.name());
+        return sc != null && sc.timeoutSeconds() > 0 ? Duration.ofSeconds(sc.timeoutSeconds()) : DEFAULT_TIMEOUT;
+    }
+}
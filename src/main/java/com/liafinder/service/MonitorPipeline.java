@@ -0,0 +1,224 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.PipelineMetrics;
+import com.liafinder.model.Listing;
+import com.liafinder.model.ScoredListing;
+import com.liafinder.store.ListingIndex;
+import com.liafinder.store.ListingStore;
+import com.liafinder.store.ScoreCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Monitor run as a pipeline: pages of filtered listings flow from the
+ * sources through deduplication and scoring into the store and index while
+ * later pages are still being fetched. Every stage runs on its own thread and
+ * buffers at most {@value #BUFFER} batches; a stage that falls behind blocks
+ * the one before it, down to the HTTP threads, so memory stays bounded however
+ * many pages a run fetches. Listings are printed as they enter the top k, and
+ * the final ranking is printed once the last page is through.
+ *
+ * <p>BM25 scoring uses the statistics of the stored index, since those of this
+ * run are not known until it is over.
+ */
+public class MonitorPipeline {
+    private static final int BUFFER = 16;
+
+    /** A deduplicated batch, and those of its listings that entered the top k. */
+    private record Scored(List<Listing> listings, List<ScoredListing> entered) {
+    }
+
+    public static void run(SearchProfile profile, int top) throws IOException, InterruptedException {
+        AppConfig cfg = profile.config();
+        // Listings seen in earlier runs keep their score unless their text or the scoring config changed
+        ScoreCache scoreCache = ScoreCache.open(cfg);
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "lia-pipeline");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (ListingStore store = ListingStore.open(cfg)) {
+            ListingIndex index = ListingIndex.open(cfg, store);
+            RankingService.TopK ranking = new RankingService.TopK(profile, Bm25.of(profile, index), scoreCache, top);
+            JobSearchService.Deduplicator dedup = new JobSearchService.Deduplicator();
+            Sink sink = new Sink(store, index);
+
+            SubmissionPublisher<List<Listing>> pages = new SubmissionPublisher<>(executor, BUFFER);
+            Stage<List<Listing>, List<Listing>> unique = new Stage<>(executor, dedup::unique);
+            Stage<List<Listing>, Scored> scored = new Stage<>(executor, batch -> score(ranking, batch));
+            pages.subscribe(unique);
+            unique.subscribe(scored);
+            scored.subscribe(sink);
+
+            System.out.println("\nEntering the top " + top + ":");
+            // A source cut off by its timeout can still deliver pages after fetch returns; those are dropped.
+            // Submits may block on a full buffer and run side by side; closing waits for them to finish.
+            ReadWriteLock gate = new ReentrantReadWriteLock();
+            JobSearchService.fetch(profile, null, batch -> {
+                if (batch.isEmpty())
+                    return;
+                gate.readLock().lock();
+                try {
+                    if (pages.isClosed()) {
+                        PipelineMetrics.latePages.increment();
+                    } else {
+                        pages.submit(batch);
+                    }
+                } finally {
+                    gate.readLock().unlock();
+                }
+            });
+            gate.writeLock().lock();
+            try {
+                pages.close();
+            } finally {
+                gate.writeLock().unlock();
+            }
+            try {
+                sink.done.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Monitor pipeline failed", e.getCause());
+            }
+            index.save();
+            if (scoreCache != null)
+                scoreCache.save();
+
+            System.out.println("Found " + sink.listings + " listings.");
+            List<ScoredListing> result = ranking.result();
+            System.out.println("\nTop Matches:");
+            for (int i = 0; i < result.size(); i++) {
+                ScoredListing sl = result.get(i);
+                String tag = sink.fresh.contains(sl.url) ? " [NEW]" : "";
+                System.out.printf("[%d] %s - %s (Score: %.1f)%s\n    URL: %s\n", i + 1, sl.title, sl.company,
+                        sl.score, tag, sl.url);
+            }
+            System.out.println("\n" + sink.fresh.size() + " new ads stored (" + store.size() + " known in total).");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Scored score(RankingService.TopK ranking, List<Listing> batch) {
+        List<ScoredListing> entered = new ArrayList<>();
+        for (Listing l : batch) {
+            ScoredListing sl = ranking.offer(l);
+            if (sl != null)
+                entered.add(sl);
+        }
+        return new Scored(batch, entered);
+    }
+
+    /**
+     * Applies {@code step} to every item and passes the result on, asking for
+     * the next item only once the result is handed over. A failing step closes
+     * the stage with its exception and stops taking items.
+     */
+    private static final class Stage<I, O> extends SubmissionPublisher<O> implements Flow.Processor<I, O> {
+        private final Function<I, O> step;
+        private Flow.Subscription upstream;
+
+        Stage(ExecutorService executor, Function<I, O> step) {
+            super(executor, BUFFER);
+            this.step = step;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(I item) {
+            try {
+                submit(step.apply(item));
+            } catch (RuntimeException e) {
+                upstream.cancel();
+                closeExceptionally(e);
+                return;
+            }
+            upstream.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            closeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            close();
+        }
+    }
+
+    /** Stores and indexes every listing and prints the ones entering the top k. */
+    private static final class Sink implements Flow.Subscriber<Scored> {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        // URLs of listings stored for the first time in this run
+        final Set<String> fresh = new HashSet<>();
+        final ListingStore store;
+        final ListingIndex index;
+        int listings;
+        private Flow.Subscription upstream;
+
+        Sink(ListingStore store, ListingIndex index) {
+            this.store = store;
+            this.index = index;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Scored batch) {
+            try {
+                for (Listing l : batch.listings()) {
+                    ListingStore.PutResult result = store.put(l);
+                    if (result == ListingStore.PutResult.NEW)
+                        fresh.add(l.url);
+                    if (result != ListingStore.PutResult.UNCHANGED)
+                        index.add(l);
+                }
+            } catch (IOException e) {
+                upstream.cancel();
+                done.completeExceptionally(new UncheckedIOException(e));
+                return;
+            }
+            listings += batch.listings().size();
+            for (ScoredListing sl : batch.entered()) {
+                String tag = fresh.contains(sl.url) ? " [NEW]" : "";
+                System.out.printf("  %5.1f  %s - %s%s%n", sl.score, sl.title, sl.company, tag);
+            }
+            upstream.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            done.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+}
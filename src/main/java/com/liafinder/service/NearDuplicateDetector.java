@@ -0,0 +1,169 @@
+package com.liafinder.service;
+
+import com.liafinder.model.Listing;
+import com.liafinder.model.TextNormalizer;
+import com.liafinder.store.ListingIndex;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Finds reposts of the same ad: a new id, another query's copy with a slightly
+ * different description, and so on.
+ *
+ * <p>Each listing gets a 64-bit SimHash of its title words, employer words
+ * and description word pairs. Two listings are duplicates when their
+ * fingerprints differ in at most {@link #MAX_DISTANCE} bits. The fingerprint
+ * is split into six bands of 10-11 bits, so any such pair has at least one
+ * identical band. Each band has a bucket table, and a lookup only compares
+ * against listings that share a bucket, never against every listing.
+ *
+ * <p>Only cluster representatives (the first listing of each cluster) are
+ * indexed, and only by their fingerprint and a hash of their URL, so a
+ * detector seeded with every stored ad stays small; later members are
+ * reported as reposts.
+ */
+public final class NearDuplicateDetector {
+    static final int MAX_DISTANCE = 5;
+    // MAX_DISTANCE + 1 bands, so a pair within the distance must agree on one of them
+    private static final int[] BAND_SHIFT = { 0, 11, 22, 33, 44, 54 };
+    private static final int[] BAND_WIDTH = { 11, 11, 11, 11, 10, 10 };
+    private static final int BANDS = BAND_SHIFT.length;
+    private static final int TITLE_WEIGHT = 4;
+    private static final int EMPLOYER_WEIGHT = 4;
+
+    // head[band][bucket] and next[band][rep] chain representatives by 1-based index; 0 ends a chain
+    private final int[][] head = new int[BANDS][1 << 11];
+    private int[][] next = new int[BANDS][64];
+    private long[] fingerprints = new long[64];
+    private long[] urlHashes = new long[64];
+    private int size;
+
+    /**
+     * Whether the listing is a repost of a representative; one that is not
+     * becomes a new representative. A listing with the same URL as its match
+     * is the same ad, not a repost.
+     */
+    public boolean isRepost(Listing l) {
+        return isRepost(fingerprint(l.title, l.company, l.description), l.url);
+    }
+
+    /** {@link #isRepost(Listing)} for a listing already reduced to its fingerprint. */
+    public boolean isRepost(long fp, String url) {
+        long urlHash = urlHash(url);
+        int match = find(fp);
+        if (match < 0) {
+            add(fp, urlHash);
+            return false;
+        }
+        return url == null || urlHashes[match] != urlHash;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(long fp) {
+        for (int band = 0; band < BANDS; band++) {
+            for (int rep = head[band][bucket(fp, band)]; rep != 0; rep = next[band][rep - 1]) {
+                if (Long.bitCount(fingerprints[rep - 1] ^ fp) <= MAX_DISTANCE)
+                    return rep - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void add(long fp, long urlHash) {
+        int n = size++;
+        if (n == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, n * 2);
+            urlHashes = Arrays.copyOf(urlHashes, n * 2);
+            for (int band = 0; band < BANDS; band++) {
+                next[band] = Arrays.copyOf(next[band], n * 2);
+            }
+        }
+        fingerprints[n] = fp;
+        urlHashes[n] = urlHash;
+        for (int band = 0; band < BANDS; band++) {
+            int b = bucket(fp, band);
+            next[band][n] = head[band][b];
+            head[band][b] = n + 1;
+        }
+    }
+
+    private static int bucket(long fp, int band) {
+        return (int) (fp >>> BAND_SHIFT[band]) & ((1 << BAND_WIDTH[band]) - 1);
+    }
+
+    /** SimHash over lower-cased title words, employer words and description word pairs. */
+    static long fingerprint(String title, String company, String description) {
+        int[] weights = new int[64];
+        forEachWord(title, h -> addFeature(weights, mix(h), TITLE_WEIGHT));
+        forEachWord(company, h -> addFeature(weights, mix(h * 31L + 7), EMPLOYER_WEIGHT));
+
+        // Word pairs keep some word order without making one edited word change many features
+        int[] previous = { 0 };
+        boolean[] first = { true };
+        forEachWord(description, h -> {
+            if (!first[0])
+                addFeature(weights, mix(((long) previous[0] << 32) ^ (h & 0xFFFFFFFFL)), 1);
+            previous[0] = h;
+            first[0] = false;
+        });
+
+        long fp = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0)
+                fp |= 1L << bit;
+        }
+        return fp;
+    }
+
+    /**
+     * Hash of each word as {@link ListingIndex#tokenize} splits it (equal to
+     * the word's {@code String.hashCode()}), without allocating the words.
+     */
+    private static void forEachWord(CharSequence text, IntConsumer sink) {
+        if (text == null)
+            return;
+        int h = 0;
+        boolean inWord = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? TextNormalizer.FULL.fold(text.charAt(i)) : ' ';
+            if (c == TextNormalizer.DROP)
+                continue;
+            if (Character.isLetterOrDigit(c)) {
+                h = 31 * h + c;
+                inWord = true;
+            } else if (inWord) {
+                sink.accept(h);
+                h = 0;
+                inWord = false;
+            }
+        }
+    }
+
+    private static void addFeature(int[] weights, long hash, int weight) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((hash >>> bit) & 1) != 0 ? weight : -weight;
+        }
+    }
+
+    // FNV-1a; 64 bits, so two stored URLs practically never collide
+    private static long urlHash(String url) {
+        long h = 0xcbf29ce484222325L;
+        if (url != null) {
+            for (int i = 0; i < url.length(); i++) {
+                h = (h ^ url.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return h;
+    }
+
+    // SplitMix64 finalizer: spreads String.hashCode over all 64 bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,68 +1,234 @@
 package com.liafinder.service;
 
 import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.Events;
+import com.liafinder.metrics.PipelineMetrics;
 import com.liafinder.model.Company;
 import com.liafinder.model.Profile;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.apache.poi.xwpf.usermodel.XWPFRun;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OutreachService {
+    private static final String EMAIL_TEMPLATE = "outreach_email.txt";
+    private static final String LETTER_TEMPLATE = "personligt_brev.txt";
+    private static final String HASH_FILE = ".outreach.sha256";
+
+    // Used when the templates directory has no template of that name
+    private static final String DEFAULT_EMAIL = "Subject: LIA Request\n\nHello {{company}},\n\n"
+            + "I am writing to enquire about LIA opportunities...\n"
+            + "\nBest details,\n{{full_name}}";
+    private static final String DEFAULT_LETTER = "Personligt Brev - {{company}}\n"
+            + "Hej {{company}},\n"
+            + "Jag studerar till Javautvecklare...\n";
+
+    /** Both templates, compiled once per batch. */
+    public record Templates(Template email, Template letter) {
+    }
 
     public static void generateOutreach(AppConfig cfg, Company company, Profile profile) {
-        String slug = company.name().toLowerCase().replaceAll("[^a-z0-9]", "_");
-        Path folder = Paths.get(cfg.output().applicationsDir(), slug);
+        generateAll(cfg, List.of(company), profile);
+    }
 
+    /**
+     * Renders the email and letter for every company in parallel. Companies
+     * whose inputs (company entry, profile and templates) hash to the same value
+     * as at their last generation are skipped. Files are written atomically.
+     */
+    public static void generateAll(AppConfig cfg, List<Company> companies, Profile profile) {
+        Templates templates;
         try {
-            Files.createDirectories(folder);
+            templates = loadTemplates(cfg);
+        } catch (IOException e) {
+            System.err.println("Failed to load outreach templates: " + e.getMessage());
+            return;
+        }
 
-            // Generate Email
-            Path emailPath = folder.resolve("outreach_email.txt");
-            String emailBody = generateEmailBody(cfg, company, profile);
-            Files.writeString(emailPath, emailBody);
+        Map<String, String> profileValues = profileValues(profile);
+        AtomicInteger generated = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
 
-            // Generate Word Doc
-            Path docPath = folder.resolve("personligt_brev.docx");
-            createWordDoc(docPath, company, profile);
+        companies.parallelStream().forEach(company -> {
+            Events.OutreachGenerated event = new Events.OutreachGenerated();
+            event.company = company.name();
+            event.begin();
+            try {
+                if (generate(cfg, templates, company, profile, profileValues)) {
+                    generated.incrementAndGet();
+                } else {
+                    skipped.incrementAndGet();
+                    event.skipped = true;
+                }
+                event.commit();
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                System.err.println("Failed to generate outreach for " + company.name() + ": " + e.getMessage());
+            }
+        });
 
-            System.out.println("Generated outreach for " + company.name() + " at " + folder);
+        long elapsed = System.nanoTime() - start;
+        PipelineMetrics.outreachNanos.add(elapsed);
+        PipelineMetrics.outreachGenerated.add(generated.get());
+        PipelineMetrics.outreachSkipped.add(skipped.get());
+        double seconds = elapsed / 1e9;
+        // Two documents (email + letter) per generated company
+        System.out.printf("Outreach: %d generated, %d unchanged, %d failed in %.2fs (%.1f documents/s)\n",
+                generated.get(), skipped.get(), failed.get(), seconds,
+                seconds > 0 ? generated.get() * 2 / seconds : 0.0);
+    }
 
-        } catch (IOException e) {
-            System.err.println("Failed to generate outreach for " + company.name());
-            e.printStackTrace();
+    public static Templates loadTemplates(AppConfig cfg) throws IOException {
+        String dir = (cfg.output() != null && cfg.output().templatesDir() != null) ? cfg.output().templatesDir()
+                : "templates";
+        return new Templates(
+                Template.compile(readTemplate(Paths.get(dir, EMAIL_TEMPLATE), DEFAULT_EMAIL)),
+                Template.compile(readTemplate(Paths.get(dir, LETTER_TEMPLATE), DEFAULT_LETTER)));
+    }
+
+    private static String readTemplate(Path path, String fallback) throws IOException {
+        return Files.exists(path) ? Files.readString(path) : fallback;
+    }
+
+    /** Returns false when the outputs are already up to date. */
+    private static boolean generate(AppConfig cfg, Templates templates, Company company, Profile profile,
+            Map<String, String> profileValues) throws IOException {
+        String slug = company.name().toLowerCase().replaceAll("[^a-z0-9]", "_");
+        Path folder = Paths.get(cfg.output().applicationsDir(), slug);
+        Path emailPath = folder.resolve("outreach_email.txt");
+        Path docPath = folder.resolve("personligt_brev.docx");
+        Path hashPath = folder.resolve(HASH_FILE);
+
+        String hash = inputHash(templates, company, profile);
+        if (Files.exists(emailPath) && Files.exists(docPath) && Files.exists(hashPath)
+                && hash.equals(Files.readString(hashPath).trim())) {
+            return false;
         }
+
+        Files.createDirectories(folder);
+        Map<String, String> values = new HashMap<>(profileValues);
+        values.put("company", company.name());
+        values.put("domain", nullToEmpty(company.domain()));
+        values.put("why", nullToEmpty(company.why()));
+        values.put("stack_hints", company.stack_hints() != null ? String.join(", ", company.stack_hints()) : "");
+
+        // Generate Email
+        String emailBody = generateEmailBody(templates, values);
+        writeAtomically(emailPath, out -> out.write(emailBody.getBytes(StandardCharsets.UTF_8)));
+
+        // Generate Word Doc
+        createWordDoc(docPath, templates.letter().render(values));
+
+        // Written last: a crash before this point regenerates the company next time
+        writeAtomically(hashPath, out -> out.write(hash.getBytes(StandardCharsets.UTF_8)));
+
+        System.out.println("Generated outreach for " + company.name() + " at " + folder);
+        return true;
+    }
+
+    private static String generateEmailBody(Templates templates, Map<String, String> values) {
+        return templates.email().render(values);
     }
 
-    private static String generateEmailBody(AppConfig cfg, Company company, Profile profile) {
-        return "Subject: LIA Request\n\nHello " + company.name() + ",\n\n" +
-                "I am writing to enquire about LIA opportunities...\n" +
-                // ... logic to fill details
-                "\nBest details,\n" + profile.person().get("full_name");
+    private static void createWordDoc(Path path, String letter) throws IOException {
+        writeAtomically(path, out -> writeLetter(letter, out));
     }
 
-    private static void createWordDoc(Path path, Company company, Profile profile) throws IOException {
+    /**
+     * First line is the bold title; following lines form paragraphs with line
+     * breaks, and a blank line starts a new paragraph.
+     */
+    static void writeLetter(String letter, OutputStream out) throws IOException {
+        String[] lines = letter.split("\n", -1);
         try (XWPFDocument doc = new XWPFDocument()) {
             XWPFParagraph title = doc.createParagraph();
             XWPFRun run = title.createRun();
             run.setBold(true);
             run.setFontSize(16);
-            run.setText("Personligt Brev - " + company.name());
+            run.setText(lines[0]);
 
-            XWPFParagraph p = doc.createParagraph();
-            XWPFRun r = p.createRun();
-            r.setText("Hej " + company.name() + ",");
-            r.addBreak();
-            r.setText("Jag studerar till Javautvecklare...");
+            XWPFRun r = null;
+            for (int i = 1; i < lines.length; i++) {
+                if (lines[i].isEmpty()) {
+                    r = null;
+                    continue;
+                }
+                if (r == null) {
+                    r = doc.createParagraph().createRun();
+                } else {
+                    r.addBreak();
+                }
+                r.setText(lines[i]);
+            }
+
+            doc.write(out);
+        }
+    }
+
+    private static Map<String, String> profileValues(Profile profile) {
+        Map<String, String> values = new HashMap<>();
+        putAll(values, profile.person());
+        putAll(values, profile.education());
+        putAll(values, profile.profile());
+        return values;
+    }
+
+    private static void putAll(Map<String, String> values, Map<String, Object> section) {
+        if (section == null)
+            return;
+        section.forEach((key, value) -> values.put(key,
+                value instanceof List<?> list ? String.join(", ", list.stream().map(String::valueOf).toList())
+                        : String.valueOf(value)));
+    }
 
-            try (FileOutputStream out = new FileOutputStream(path.toFile())) {
-                doc.write(out);
+    private static String inputHash(Templates templates, Company company, Profile profile) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (String part : List.of(templates.email().source(), templates.letter().source(),
+                    company.toString(), profile.toString())) {
+                sha.update(part.getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static void writeAtomically(Path target, Writer writer) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                writer.write(out);
             }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
         }
     }
+
+    private static String nullToEmpty(String s) {
+        return s != null ? s : "";
+    }
 }
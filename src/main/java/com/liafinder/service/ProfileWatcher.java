@@ -0,0 +1,119 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.config.ConfigLoader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link SearchProfile} and recompiles it when config.yaml
+ * or the companies.yaml next to it changes on disk. The swap is a single
+ * reference update, so a poll or query that is already running keeps the
+ * profile it started with. An edit that does not parse is reported and the
+ * previous profile stays in use.
+ */
+public class ProfileWatcher implements Closeable {
+    // Editors often write a file in several steps; wait for them to settle before reading
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path configPath;
+    private final Path companiesPath;
+    private final AtomicReference<SearchProfile> current;
+    private final WatchService watchService;
+    private final Thread thread;
+    private FileTime loadedModified;
+    private FileTime loadedCompaniesModified;
+
+    public static ProfileWatcher start(String configPath, AppConfig initial) throws IOException {
+        ProfileWatcher watcher = new ProfileWatcher(Paths.get(configPath).toAbsolutePath(), initial);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    private ProfileWatcher(Path configPath, AppConfig initial) throws IOException {
+        this.configPath = configPath;
+        this.companiesPath = configPath.resolveSibling(CompanyIndex.DEFAULT_FILE);
+        this.current = new AtomicReference<>(SearchProfile.compile(initial, configPath.getParent()));
+        this.loadedModified = Files.getLastModifiedTime(configPath);
+        this.loadedCompaniesModified = modified(companiesPath);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // Watch the directory: editors that save by renaming replace the file's inode
+        configPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::watch, "lia-config-watcher");
+        thread.setDaemon(true);
+    }
+
+    public SearchProfile current() {
+        return current.get();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean touched = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (configPath.getFileName().equals(event.context())
+                            || companiesPath.getFileName().equals(event.context()))
+                        touched = true;
+                }
+                key.reset();
+                if (touched) {
+                    Thread.sleep(SETTLE_MILLIS);
+                    // Drain the events of the same save
+                    WatchKey more;
+                    while ((more = watchService.poll()) != null) {
+                        more.pollEvents();
+                        more.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private void reload() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(configPath);
+            FileTime companiesModified = modified(companiesPath);
+            if (modified.equals(loadedModified) && Objects.equals(companiesModified, loadedCompaniesModified))
+                return;
+            AppConfig cfg = ConfigLoader.loadConfig(configPath.toString());
+            current.set(SearchProfile.compile(cfg, configPath.getParent()));
+            Path changed = modified.equals(loadedModified) ? companiesPath : configPath;
+            loadedModified = modified;
+            loadedCompaniesModified = companiesModified;
+            System.out.println("Reloaded " + changed.getFileName() + ".");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring invalid " + configPath.getFileName() + ", keeping the previous config: "
+                    + e.getMessage());
+        }
+    }
+
+    /** Null when the file does not exist, so creating or deleting it counts as a change. */
+    private static FileTime modified(Path file) throws IOException {
+        return Files.exists(file) ? Files.getLastModifiedTime(file) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
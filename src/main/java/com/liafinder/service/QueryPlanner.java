@@ -0,0 +1,131 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Plans the JobTech requests of a run. Overlapping queries are merged: the
+ * search API requires every word of a query, so a query whose words include
+ * all words of a broader query only returns ads the broader one finds too.
+ * Such narrower queries are dropped and their page budget goes to the broader
+ * query. Each planned query is then paged with {@code offset} while its pages
+ * keep paying off, see {@link Progress}.
+ */
+public final class QueryPlanner {
+    // The search API refuses offsets beyond this
+    static final int MAX_OFFSET = 2000;
+
+    /** A query to run, and how many pages of it may be fetched. */
+    public record Query(String text, int maxPages) {
+    }
+
+    /** When to stop paging; without a {@code query:} section every query gets a single page. */
+    public record Paging(boolean merge, int maxPages, double minYield, int stalePages) {
+        public static final Paging SINGLE_PAGE = new Paging(false, 1, 0, 1);
+
+        static Paging of(AppConfig.QueryConfig q) {
+            if (q == null)
+                return SINGLE_PAGE;
+            return new Paging(q.mergeQueries(), Math.max(q.maxPages(), 1), q.minYield(),
+                    Math.max(q.stalePages(), 1));
+        }
+    }
+
+    private QueryPlanner() {
+    }
+
+    /** The queries in their original order, each narrower one folded into the broadest query covering it. */
+    static List<Query> plan(List<String> queries, Paging paging) {
+        List<Set<String>> words = new ArrayList<>();
+        for (String q : queries) {
+            words.add(words(q));
+        }
+
+        int[] target = new int[queries.size()];
+        int[] absorbed = new int[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            target[i] = i;
+            if (!paging.merge())
+                continue;
+            // The broadest covering query; equal word sets go to the first of them
+            for (int j = 0; j < queries.size(); j++) {
+                if (j == i || !words.get(i).containsAll(words.get(j)))
+                    continue;
+                boolean broader = words.get(j).size() < words.get(target[i]).size()
+                        || (words.get(j).size() == words.get(target[i]).size() && j < target[i]);
+                if (broader)
+                    target[i] = j;
+            }
+            if (target[i] != i)
+                absorbed[target[i]]++;
+        }
+
+        List<Query> plan = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            if (target[i] == i)
+                plan.add(new Query(queries.get(i), paging.maxPages() * (1 + absorbed[i])));
+        }
+        return plan;
+    }
+
+    /** Lowercased words of a query; a quoted phrase counts as one word. */
+    static Set<String> words(String query) {
+        Set<String> words = new TreeSet<>();
+        StringBuilder word = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (word.length() > 0)
+                    words.add(word.toString().toLowerCase(Locale.ROOT));
+                word.setLength(0);
+            } else {
+                word.append(c);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Paging state of one query. Results come back most relevant first, so
+     * paging stops at the last page, at the page budget, when a page's share
+     * of hits that pass the filters drops below {@code min_yield}, or after
+     * {@code stale_pages} pages in a row without a listing not already found
+     * by this or another query.
+     */
+    static final class Progress {
+        private final int maxPages;
+        private final Paging paging;
+        private int pages;
+        private int offset;
+        private int stale;
+
+        Progress(Query query, Paging paging) {
+            this.maxPages = query.maxPages();
+            this.paging = paging;
+        }
+
+        int offset() {
+            return offset;
+        }
+
+        /** Records a fetched page of {@code limit}; returns true when the next page is worth fetching. */
+        boolean next(int limit, int hits, int accepted, int unique) {
+            pages++;
+            offset += limit;
+            stale = unique == 0 ? stale + 1 : 0;
+            if (hits < limit || pages >= maxPages || offset > MAX_OFFSET)
+                return false;
+            if ((double) accepted / hits < paging.minYield())
+                return false;
+            return stale < paging.stalePages();
+        }
+    }
+}
@@ -1,98 +1,374 @@
 package com.liafinder.service;
 
-import com.liafinder.config.AppConfig;
+import com.liafinder.metrics.Events;
+import com.liafinder.metrics.PipelineMetrics;
 import com.liafinder.model.Listing;
 import com.liafinder.model.ScoredListing;
+import com.liafinder.store.CompactListings;
+import com.liafinder.store.ListingIndex;
+import com.liafinder.store.ScoreCache;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
+/**
+ * Ranks listings by the rule points in {@link SearchProfile.Weights}, by
+ * {@link Bm25} relevance, or by both, as set under {@code ranking:}. The
+ * BM25 corpus statistics come from the {@link ListingIndex} when the caller
+ * has one, and otherwise from the listings being ranked.
+ *
+ * <p>Rule scores depend only on a listing's text and the profile, so they can
+ * be reused: from a {@link ScoreCache} across runs, and from the score column
+ * of the index within one. BM25 scores also depend on the corpus and are
+ * always computed.
+ */
 public class RankingService {
 
-    public static List<ScoredListing> scoreListings(AppConfig cfg, List<Listing> listings) {
+    public static List<ScoredListing> scoreListings(SearchProfile profile, List<Listing> listings) {
+        Events.Scoring event = new Events.Scoring();
+        event.begin();
+        long start = System.nanoTime();
         List<ScoredListing> scored = new ArrayList<>();
+        TermMatcher.Hits terms = profile.matcher().newHits();
+        DateExtractor.Mentions dates = newMentions(profile);
+        Bm25 bm25 = Bm25.of(profile, listings);
 
         for (Listing l : listings) {
-            ScoredListing sl = new ScoredListing(l);
-            double score = 1.0; // Base score
-            String titleLower = l.title.toLowerCase();
-            String descriptionLower = (l.description != null ? l.description : "").toLowerCase();
-            String combinedLower = (titleLower + " " + descriptionLower);
-
-            // 1. LIA Term Bonus (Higher weights for LIA relevance)
-            if (cfg.search().liaTerms() != null) {
-                for (String term : cfg.search().liaTerms()) {
-                    String t = term.toLowerCase();
-                    if (titleLower.contains(t)) {
-                        score += 15.0; // Large bonus for LIA in title
-                        sl.reasons.add("LIA term in title: " + term);
-                    } else if (descriptionLower.contains(t)) {
-                        score += 5.0;
-                        sl.reasons.add("LIA term in description: " + term);
-                    }
+            scored.add(explain(profile, bm25, terms, dates, l));
+        }
+
+        // Sort descending by score
+        scored.sort(Comparator.comparingDouble((ScoredListing sl) -> sl.score).reversed());
+        recordScoring(event, start, scored.size(), scored.size());
+        return scored;
+    }
+
+    /**
+     * Best {@code k} listings, highest score first, in the same order
+     * {@link #scoreListings} would put them. Listings are scored one at a time
+     * into a min-heap of size k, and reasons are only built for the k winners.
+     */
+    public static List<ScoredListing> topListings(SearchProfile profile, Iterable<Listing> listings, int k) {
+        return topListings(profile, Bm25.of(profile, listings), listings, k);
+    }
+
+    /** Like {@link #topListings(SearchProfile, Iterable, int)} with the given BM25 scorer, or null for rules only. */
+    public static List<ScoredListing> topListings(SearchProfile profile, Bm25 bm25, Iterable<Listing> listings,
+            int k) {
+        return topListings(profile, bm25, null, listings, k);
+    }
+
+    /**
+     * Like {@link #topListings(SearchProfile, Bm25, Iterable, int)}, taking
+     * rule scores from the cache when present and adding the ones computed.
+     * The cache may be null.
+     */
+    public static List<ScoredListing> topListings(SearchProfile profile, Bm25 bm25, ScoreCache cache,
+            Iterable<Listing> listings, int k) {
+        if (k <= 0)
+            return List.of();
+        TopK top = new TopK(profile, bm25, cache, k);
+        for (Listing l : listings) {
+            top.offer(l);
+        }
+        return top.result();
+    }
+
+    /**
+     * {@link #topListings(SearchProfile, Bm25, ScoreCache, Iterable, int)} for
+     * listings that arrive one at a time: offer each, then ask for the result.
+     * Not thread-safe.
+     */
+    public static final class TopK {
+        private final SearchProfile profile;
+        private final Bm25 bm25;
+        private final ScoreCache cache;
+        private final int k;
+        private final TermMatcher.Hits terms;
+        private final DateExtractor.Mentions dates;
+        // Head is the weakest candidate: lowest score, and on ties the one that came last
+        private final PriorityQueue<Candidate> heap;
+        private final Events.Scoring event = new Events.Scoring();
+        private long reused;
+        private long seq;
+        private long nanos;
+
+        public TopK(SearchProfile profile, Bm25 bm25, ScoreCache cache, int k) {
+            this.profile = profile;
+            this.bm25 = bm25;
+            this.cache = bm25 == null ? cache : null;
+            this.k = k;
+            this.terms = profile.matcher().newHits();
+            this.dates = newMentions(profile);
+            this.heap = new PriorityQueue<>(Math.max(k, 1), Candidate.WORST_FIRST);
+            event.begin();
+        }
+
+        /** Scores the listing; returns it with its score if it is among the best k so far, else null. */
+        public ScoredListing offer(Listing l) {
+            long start = System.nanoTime();
+            double score;
+            if (cache != null) {
+                long key = ScoreCache.key(l, profile.scoringHash());
+                Double hit = cache.get(key);
+                if (hit != null) {
+                    score = hit;
+                    reused++;
+                } else {
+                    score = score(profile, null, terms, dates, l, null);
+                    cache.put(key, score);
                 }
+            } else {
+                score = score(profile, bm25, terms, dates, l, null);
             }
+            boolean kept = k > 0 && RankingService.offer(heap, k, new Candidate(l, -1, score, seq++));
+            nanos += System.nanoTime() - start;
+            if (!kept)
+                return null;
+            ScoredListing sl = new ScoredListing(l);
+            sl.score = score;
+            return sl;
+        }
 
-            // 2. Java Term Bonus
-            if (cfg.search().javaTerms() != null) {
-                for (String term : cfg.search().javaTerms()) {
-                    String t = term.toLowerCase();
-                    if (titleLower.contains(t)) {
-                        score += 5.0;
-                    } else if (descriptionLower.contains(t)) {
-                        score += 2.0;
-                    }
-                }
+        /** The best k so far, highest score first, with reasons. */
+        public List<ScoredListing> result() {
+            long start = System.nanoTime();
+            List<Candidate> winners = new ArrayList<>(heap);
+            winners.sort(Candidate.WORST_FIRST.reversed());
+
+            List<ScoredListing> top = new ArrayList<>(winners.size());
+            for (Candidate c : winners) {
+                top.add(explain(profile, bm25, terms, dates, c.listing()));
             }
+            PipelineMetrics.scoresReused.add(reused);
+            recordScoring(event, start - nanos, (int) seq, k);
+            return top;
+        }
+    }
+
+    /**
+     * Best {@code k} of the given documents of the index, or of all live
+     * documents when {@code docs} is null. Each document's title and
+     * description are scanned in place as UTF-8. Rule scores are written to the
+     * store's score column and reused on the next call under the same profile;
+     * BM25 and blended scores depend on the corpus and are never stored. Only
+     * the k winners are decoded into listings.
+     */
+    public static List<ScoredListing> topListings(SearchProfile profile, ListingIndex index, int[] docs, int k) {
+        if (k <= 0)
+            return List.of();
+        Events.Scoring event = new Events.Scoring();
+        event.begin();
+        long start = System.nanoTime();
 
-            // 3. Exclusion Penalties (Secondary check)
-            List<String> notLia = cfg.search().notLiaTerms();
-            if (notLia == null || notLia.isEmpty()) {
-                notLia = (cfg.linkedin() != null) ? cfg.linkedin().notLiaTerms() : null;
+        CompactListings store = index.documents();
+        Bm25 bm25 = Bm25.of(profile, index);
+        TermMatcher matcher = profile.matcher();
+        TermMatcher.Hits terms = matcher.newHits();
+        boolean rules = profile.ranking().usesRules();
+        DateExtractor.Mentions dates = rules ? newMentions(profile) : null;
+        byte[] arena = store.arena();
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k, Candidate.WORST_FIRST);
+        // Documents never change, so a rule score in the column stays valid until the profile does
+        boolean reuse = bm25 == null;
+        if (reuse)
+            store.useScoresOf(profile.scoringHash());
+        int n = docs != null ? docs.length : store.size();
+        long reused = 0;
+        long seq = 0;
+        for (int i = 0; i < n; i++) {
+            int doc = docs != null ? docs[i] : i;
+            if (store.isDeleted(doc))
+                continue;
+            if (reuse && store.has(doc, CompactListings.SCORED)) {
+                offer(heap, k, new Candidate(null, doc, store.score(doc), seq++));
+                reused++;
+                continue;
             }
-            if (notLia != null) {
-                for (String term : notLia) {
-                    if (combinedLower.contains(term.toLowerCase())) {
-                        score -= 50.0; // Heavy penalty
-                        sl.reasons.add("Excluded term found: " + term);
-                    }
-                }
+            terms.clear();
+            if (store.titleLength(doc) >= 0) {
+                matcher.scanUtf8(terms, arena, store.titleOffset(doc), store.titleLength(doc), TermMatcher.TITLE);
+            }
+            if (store.descriptionLength(doc) >= 0) {
+                matcher.scanUtf8(terms, arena, store.descriptionOffset(doc), store.descriptionLength(doc),
+                        TermMatcher.DESCRIPTION);
             }
+            if (dates != null) {
+                dates.clear();
+                if (store.titleLength(doc) >= 0)
+                    dates.scanUtf8(arena, store.titleOffset(doc), store.titleLength(doc));
+                if (store.descriptionLength(doc) >= 0)
+                    dates.scanUtf8(arena, store.descriptionOffset(doc), store.descriptionLength(doc));
+            }
+            CompanyIndex.Match company = rules ? profile.companies().find(store.company(doc)) : null;
+            double score = score(profile, bm25, terms, dates, company, store.titleTokens(doc),
+                    store.descriptionTokens(doc), null);
+            if (reuse)
+                store.setScore(doc, score);
+            offer(heap, k, new Candidate(null, doc, score, seq++));
+        }
 
-            // 4. Specific Date Bonus (Oct 2026 - March 2027)
-            if (combinedLower.contains("2026") || combinedLower.contains("2027")) {
-                score += 5.0;
-                if (combinedLower.contains("oktober") || combinedLower.contains("october")
-                        || combinedLower.contains("10")) {
-                    score += 10.0;
-                    sl.reasons.add("Target month match (October)");
-                }
-                if (combinedLower.contains("mars") || combinedLower.contains("march") || combinedLower.contains("03")) {
-                    score += 5.0;
-                    sl.reasons.add("Target month match (March)");
-                }
+        List<Candidate> winners = new ArrayList<>(heap);
+        winners.sort(Candidate.WORST_FIRST.reversed());
+
+        List<ScoredListing> top = new ArrayList<>(winners.size());
+        for (Candidate c : winners) {
+            top.add(explain(profile, bm25, terms, dates, store.get(c.doc())));
+        }
+        PipelineMetrics.scoresReused.add(reused);
+        recordScoring(event, start, (int) seq, k);
+        return top;
+    }
+
+    /** Adds the candidate if the heap has fewer than k or it beats the weakest one; returns whether it did. */
+    private static boolean offer(PriorityQueue<Candidate> heap, int k, Candidate c) {
+        if (heap.size() < k) {
+            heap.add(c);
+        } else if (c.score() > heap.peek().score()) {
+            heap.poll();
+            heap.add(c);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /** Scores one listing again, this time collecting the reasons. */
+    private static ScoredListing explain(SearchProfile profile, Bm25 bm25, TermMatcher.Hits terms,
+            DateExtractor.Mentions dates, Listing l) {
+        ScoredListing sl = new ScoredListing(l);
+        sl.score = score(profile, bm25, terms, dates, l, sl.reasons);
+        return sl;
+    }
+
+    private static DateExtractor.Mentions newMentions(SearchProfile profile) {
+        return profile.dates() != null ? profile.dates().newMentions() : null;
+    }
+
+    private static void recordScoring(Events.Scoring event, long startNanos, int listings, int k) {
+        PipelineMetrics.scoringNanos.add(System.nanoTime() - startNanos);
+        PipelineMetrics.listingsScored.add(listings);
+        event.listings = listings;
+        event.k = k;
+        event.commit();
+    }
+
+    private record Candidate(Listing listing, int doc, double score, long seq) {
+        static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::score)
+                .thenComparing(Comparator.comparingLong(Candidate::seq).reversed());
+    }
+
+    /** Running score of one listing; reasons are only collected when a list is given. */
+    private static final class Tally {
+        double score = 1.0; // Base score
+        final List<String> reasons;
+
+        Tally(List<String> reasons) {
+            this.reasons = reasons;
+        }
+
+        void add(double points) {
+            score += points;
+        }
+
+        void add(double points, String reason, String term) {
+            score += points;
+            if (reasons != null)
+                reasons.add(term == null ? reason : reason + term);
+        }
+    }
+
+    private static double score(SearchProfile profile, Bm25 bm25, TermMatcher.Hits terms,
+            DateExtractor.Mentions dates, Listing l, List<String> reasons) {
+        TermMatcher matcher = profile.matcher();
+        String title = l.normalizedTitle(matcher.normalizer());
+        String description = l.normalizedDescription(matcher.normalizer());
+        terms.clear();
+        matcher.scan(terms, title, TermMatcher.TITLE);
+        matcher.scan(terms, description, TermMatcher.DESCRIPTION);
+        if (dates != null && profile.ranking().usesRules()) {
+            dates.clear();
+            dates.scan(title);
+            dates.scan(description);
+        }
+        CompanyIndex.Match company = profile.ranking().usesRules() ? profile.companies().find(l.company) : null;
+        if (bm25 == null)
+            return score(profile, null, terms, dates, company, 0, 0, reasons);
+        return score(profile, bm25, terms, dates, company, ListingIndex.countTokens(title),
+                ListingIndex.countTokens(description), reasons);
+    }
+
+    /** Score from the term, date and company matches of one listing; works the same for String and UTF-8 scans. */
+    private static double score(SearchProfile profile, Bm25 bm25, TermMatcher.Hits terms,
+            DateExtractor.Mentions dates, CompanyIndex.Match company, int titleTokens, int descriptionTokens,
+            List<String> reasons) {
+        SearchProfile.Ranking ranking = profile.ranking();
+        Tally tally = new Tally(reasons);
+        if (ranking.usesRules())
+            addRulePoints(profile, terms, dates, company, tally);
+        if (bm25 != null) {
+            double points = ranking.bm25Weight() * bm25.score(terms, titleTokens, descriptionTokens);
+            if (reasons != null) {
+                tally.add(points, String.format("BM25 relevance: %+.1f", points), null);
+            } else {
+                tally.add(points);
             }
+        }
+        return tally.score;
+    }
+
+    private static void addRulePoints(SearchProfile profile, TermMatcher.Hits terms, DateExtractor.Mentions dates,
+            CompanyIndex.Match company, Tally tally) {
+        SearchProfile.Weights w = profile.weights();
 
-            // 5. Remote / location bonuses
-            if (cfg.search().remoteOk() && combinedLower.contains("remote")) {
-                score += 2.0;
+        // 1. LIA Term Bonus (Higher weights for LIA relevance)
+        terms.forEach(TermMatcher.Group.LIA, (term, inTitle, inDescription) -> {
+            if (inTitle) {
+                tally.add(w.liaTitle(), "LIA term in title: ", term); // Large bonus for LIA in title
+            } else if (inDescription) {
+                tally.add(w.liaDescription(), "LIA term in description: ", term);
             }
-            if (cfg.search().locations() != null) {
-                for (String loc : cfg.search().locations()) {
-                    if (combinedLower.contains(loc.toLowerCase())) {
-                        score += 1.0;
-                    }
-                }
+        });
+
+        // 2. Java Term Bonus
+        terms.forEach(TermMatcher.Group.JAVA, (term, inTitle, inDescription) -> {
+            if (inTitle) {
+                tally.add(w.javaTitle());
+            } else if (inDescription) {
+                tally.add(w.javaDescription());
             }
+        });
 
-            sl.score = score;
-            scored.add(sl);
+        // 3. Exclusion Penalties (Secondary check)
+        terms.forEach(TermMatcher.Group.NOT_LIA, (term, inTitle, inDescription) -> {
+            tally.add(w.notLia(), "Excluded term found: ", term); // Heavy penalty
+        });
+
+        // 4. Specific Date Bonus (the lia: start_date - end_date period)
+        if (dates != null && dates.yearInPeriod()) {
+            tally.add(w.targetYear());
+            if (dates.start()) {
+                tally.add(w.targetStart(), "Target start match: ", DateExtractor.label(profile.dates().start()));
+            }
+            if (dates.end()) {
+                tally.add(w.targetEnd(), "Target end match: ", DateExtractor.label(profile.dates().end()));
+            }
         }
 
-        // Sort descending by score
-        scored.sort(Comparator.comparingDouble((ScoredListing sl) -> sl.score).reversed());
-        return scored;
+        // 5. Remote / location bonuses
+        if (profile.remoteOk() && terms.any(TermMatcher.Group.REMOTE)) {
+            tally.add(w.remote());
+        }
+        terms.forEach(TermMatcher.Group.LOCATION, (loc, inTitle, inDescription) -> tally.add(w.location()));
+
+        // 6. Target company from companies.yaml, and its known stack
+        if (company != null) {
+            tally.add(w.targetCompany(), "Target company: ", company.company().name());
+            for (String hint : company.hints()) {
+                tally.add(w.stackHint(), "Company stack: ", hint);
+            }
+        }
     }
 }
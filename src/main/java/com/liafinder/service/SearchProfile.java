@@ -0,0 +1,236 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Everything the fetch, filter and scoring paths need from {@link AppConfig},
+ * compiled once: the term matcher, the scoring weights and the query plan.
+ * Instances are immutable, so a reloaded config can replace one atomically
+ * (see {@link ProfileWatcher}) while other threads still use the old one.
+ */
+public final class SearchProfile {
+    private final AppConfig config;
+    private final TermMatcher matcher;
+    private final DateExtractor dates;
+    private final CompanyIndex companies;
+    private final Weights weights;
+    private final Ranking ranking;
+    private final long scoringHash;
+    private final List<String> queries;
+    private final List<QueryPlanner.Query> plan;
+    private final QueryPlanner.Paging paging;
+    private final boolean remoteOk;
+    private final int maxPerQuery;
+
+    /** Points awarded by {@link RankingService}; defaults apply to anything missing under {@code weights:}. */
+    public record Weights(
+            double liaTitle,
+            double liaDescription,
+            double javaTitle,
+            double javaDescription,
+            double notLia,
+            double targetYear,
+            double targetStart,
+            double targetEnd,
+            double remote,
+            double location,
+            double targetCompany,
+            double stackHint) {
+
+        public static final Weights DEFAULT = new Weights(15, 5, 5, 2, -50, 5, 10, 5, 2, 1, 5, 2);
+
+        static Weights of(AppConfig.WeightsConfig w) {
+            if (w == null)
+                return DEFAULT;
+            return new Weights(
+                    or(w.liaTitle(), DEFAULT.liaTitle),
+                    or(w.liaDescription(), DEFAULT.liaDescription),
+                    or(w.javaTitle(), DEFAULT.javaTitle),
+                    or(w.javaDescription(), DEFAULT.javaDescription),
+                    or(w.notLia(), DEFAULT.notLia),
+                    or(w.targetYear(), DEFAULT.targetYear),
+                    or(w.targetStart(), DEFAULT.targetStart),
+                    or(w.targetEnd(), DEFAULT.targetEnd),
+                    or(w.remote(), DEFAULT.remote),
+                    or(w.location(), DEFAULT.location),
+                    or(w.targetCompany(), DEFAULT.targetCompany),
+                    or(w.stackHint(), DEFAULT.stackHint));
+        }
+
+        private static double or(Double value, double fallback) {
+            return value != null ? value : fallback;
+        }
+    }
+
+    /**
+     * How {@link RankingService} combines the rule points with {@link Bm25}
+     * relevance, which is scaled by {@code bm25Weight} points per unit.
+     */
+    public record Ranking(Mode mode, double bm25Weight, double k1, double b, double titleBoost) {
+
+        public enum Mode {
+            /** The weights above only. */
+            RULES,
+            /** BM25 relevance to the LIA and Java terms only. */
+            BM25,
+            /** Rule points plus BM25 points. */
+            BLEND
+        }
+
+        public static final Ranking DEFAULT = new Ranking(Mode.RULES, 5, 1.2, 0.75, 3);
+
+        static Ranking of(AppConfig.RankingConfig r) {
+            if (r == null)
+                return DEFAULT;
+            Mode mode = DEFAULT.mode;
+            if (r.mode() != null) {
+                try {
+                    mode = Mode.valueOf(r.mode().trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown ranking mode '" + r.mode()
+                            + "', expected rules, bm25 or blend");
+                }
+            }
+            return new Ranking(mode,
+                    Weights.or(r.bm25Weight(), DEFAULT.bm25Weight),
+                    Weights.or(r.k1(), DEFAULT.k1),
+                    Weights.or(r.b(), DEFAULT.b),
+                    Weights.or(r.titleBoost(), DEFAULT.titleBoost));
+        }
+
+        public boolean usesBm25() {
+            return mode != Mode.RULES;
+        }
+
+        public boolean usesRules() {
+            return mode != Mode.BM25;
+        }
+    }
+
+    private SearchProfile(AppConfig config, Path configDir) {
+        this.config = config;
+        this.matcher = TermMatcher.forConfig(config);
+        this.dates = DateExtractor.of(config.lia());
+        this.companies = CompanyIndex.load(configDir.resolve(CompanyIndex.DEFAULT_FILE), config.search().javaTerms());
+        this.weights = Weights.of(config.weights());
+        this.ranking = Ranking.of(config.ranking());
+        this.paging = QueryPlanner.Paging.of(config.search().query());
+        this.plan = QueryPlanner.plan(buildQueries(config), paging);
+        this.queries = plan.stream().map(QueryPlanner.Query::text).toList();
+        this.remoteOk = config.search().remoteOk();
+        this.scoringHash = hashScoring();
+        this.maxPerQuery = (config.search().query() != null) ? config.search().query().maxPerQuery() : 50;
+    }
+
+    /** Compiles a config.yaml from the working directory. */
+    public static SearchProfile compile(AppConfig config) {
+        return compile(config, Path.of(""));
+    }
+
+    /** Compiles a config read from {@code configDir}; its companies.yaml is read from the same directory. */
+    public static SearchProfile compile(AppConfig config, Path configDir) {
+        return new SearchProfile(config, configDir);
+    }
+
+    /** The raw config, for settings outside the hot paths (data_dir, fetch limits, sources). */
+    public AppConfig config() {
+        return config;
+    }
+
+    public TermMatcher matcher() {
+        return matcher;
+    }
+
+    /** The LIA period and its date scanner, or null when {@code lia.start_date} is not set. */
+    public DateExtractor dates() {
+        return dates;
+    }
+
+    /** The target companies from companies.yaml next to config.yaml; empty without that file. */
+    public CompanyIndex companies() {
+        return companies;
+    }
+
+    public Weights weights() {
+        return weights;
+    }
+
+    public Ranking ranking() {
+        return ranking;
+    }
+
+    /**
+     * Hash of everything the score of a listing depends on besides its text:
+     * the terms and their groups, the weights, the ranking settings,
+     * remote_ok, the LIA period and the target companies with their matching
+     * stack hints. Stable across runs, so it can key persisted scores.
+     */
+    public long scoringHash() {
+        return scoringHash;
+    }
+
+    /** JobTech search queries after merging, see {@link QueryPlanner}. */
+    public List<String> queries() {
+        return queries;
+    }
+
+    /** The same queries with their page budgets. */
+    public List<QueryPlanner.Query> plan() {
+        return plan;
+    }
+
+    public QueryPlanner.Paging paging() {
+        return paging;
+    }
+
+    public boolean remoteOk() {
+        return remoteOk;
+    }
+
+    public int maxPerQuery() {
+        return maxPerQuery;
+    }
+
+    private long hashScoring() {
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0; p < matcher.patternCount(); p++) {
+            sb.append(matcher.pattern(p)).append('\0').append(matcher.groups(p)).append('\0');
+        }
+        sb.append(weights).append(ranking).append(remoteOk).append(matcher.normalizer().foldsDiacritics());
+        if (dates != null)
+            sb.append(dates.start()).append(dates.end());
+        for (CompanyIndex.Match m : companies.matches()) {
+            sb.append(m.company().name()).append('\0').append(m.company().website()).append(m.hints());
+        }
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < sb.length(); i++) {
+            h = (h ^ sb.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static List<String> buildQueries(AppConfig cfg) {
+        List<String> locations = cfg.search().locations() != null ? cfg.search().locations() : List.of("Stockholm");
+        String loc = String.join(" ", locations);
+
+        List<String> base = new ArrayList<>(List.of(
+                "LIA Java " + loc,
+                "praktik Java " + loc,
+                "\"lärande i arbete\" Java " + loc,
+                "yrkeshögskola Java " + loc,
+                "internship Java " + loc,
+                "LIA Spring Boot " + loc,
+                "praktik Spring Boot " + loc,
+                "LIA backend Java " + loc,
+                "praktik backend Java " + loc));
+
+        // Note: For Oct 2026, most current ads are irrelevant.
+        // We will filter heavily in parseResponse.
+        return List.copyOf(new HashSet<>(base));
+    }
+}
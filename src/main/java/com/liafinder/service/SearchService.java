@@ -0,0 +1,77 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.ScoredListing;
+import com.liafinder.store.ListingIndex;
+import com.liafinder.store.ListingStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+/**
+ * Local search over every listing collected so far. Queries run against the
+ * inverted index and the matches are ranked with the current config, so
+ * changes to the terms in config.yaml show up without fetching again.
+ */
+public class SearchService {
+    private static final int SHOWN = 20;
+
+    /** Answers one query, or reads queries from stdin until "quit" when the query is null. */
+    public static void run(String configPath, AppConfig cfg, String query) throws IOException {
+        ListingIndex index;
+        try (ListingStore store = ListingStore.open(cfg)) {
+            index = ListingIndex.open(cfg, store);
+        }
+        System.out.printf("Search index: %d listings, %d terms, ~%.1f MB of listing data.\n", index.size(),
+                index.termCount(), index.documents().approximateBytes() / 1e6);
+
+        if (query != null) {
+            search(SearchProfile.compile(cfg, Path.of(configPath).toAbsolutePath().getParent()), index, query);
+            return;
+        }
+
+        System.out.println("Enter words to search for (all must match), an empty line to re-rank everything,"
+                + " or 'quit'. Edits to config.yaml apply to the next query.");
+        try (ProfileWatcher profiles = ProfileWatcher.start(configPath, cfg)) {
+            Scanner scanner = new Scanner(System.in);
+            while (true) {
+                System.out.print("\nsearch> ");
+                if (!scanner.hasNextLine())
+                    break;
+                String line = scanner.nextLine().trim();
+                if ("quit".equalsIgnoreCase(line) || "exit".equalsIgnoreCase(line))
+                    break;
+                search(profiles.current(), index, line);
+            }
+        }
+    }
+
+    /** Prints the best matches for the query, ranked by {@link RankingService}. */
+    public static void search(SearchProfile profile, ListingIndex index, String query) {
+        long start = System.nanoTime();
+        int[] matches = index.searchDocs(query);
+        List<ScoredListing> top = RankingService.topListings(profile, index, matches, SHOWN);
+        double ms = (System.nanoTime() - start) / 1e6;
+
+        Set<String> words = new LinkedHashSet<>();
+        ListingIndex.tokenize(query, words::add);
+        for (String w : words) {
+            int[] df = index.documentFrequency(w);
+            System.out.println("  " + w + ": " + df[0] + " ads (" + df[1] + " in title)");
+        }
+
+        System.out.printf("%d matches, ranked in %.1f ms.\n", matches.length, ms);
+        for (int i = 0; i < top.size(); i++) {
+            ScoredListing sl = top.get(i);
+            System.out.printf("[%d] %s - %s (Score: %.1f)\n    URL: %s\n", i + 1, sl.title, sl.company, sl.score,
+                    sl.url);
+            if (!sl.reasons.isEmpty()) {
+                System.out.println("    " + String.join("; ", sl.reasons));
+            }
+        }
+    }
+}
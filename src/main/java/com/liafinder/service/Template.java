@@ -0,0 +1,56 @@
+package com.liafinder.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Text with {@code {{name}}} placeholders, split into literal and placeholder
+ * parts once so rendering is a single pass over the parts.
+ */
+public final class Template {
+    private final String source;
+    private final String[] literals;
+    private final String[] keys;
+
+    private Template(String source, String[] literals, String[] keys) {
+        this.source = source;
+        this.literals = literals;
+        this.keys = keys;
+    }
+
+    public static Template compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            int close = open < 0 ? -1 : source.indexOf("}}", open + 2);
+            if (close < 0) {
+                literals.add(source.substring(pos));
+                break;
+            }
+            literals.add(source.substring(pos, open));
+            keys.add(source.substring(open + 2, close).trim());
+            pos = close + 2;
+        }
+        return new Template(source, literals.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    /** Unknown placeholders render as an empty string. */
+    public String render(Map<String, String> values) {
+        StringBuilder out = new StringBuilder(source.length() + 64);
+        for (int i = 0; i < keys.length; i++) {
+            out.append(literals[i]);
+            String value = values.get(keys[i]);
+            if (value != null)
+                out.append(value);
+        }
+        out.append(literals[keys.length]);
+        return out.toString();
+    }
+
+    public String source() {
+        return source;
+    }
+}
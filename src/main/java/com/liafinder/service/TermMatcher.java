@@ -0,0 +1,453 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.TextNormalizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Aho-Corasick matcher over every configured term. A text is scanned once
+ * and the result tells which term groups matched and whether each match was
+ * in the title or the description. Terms and text are both folded by the
+ * matcher's {@link TextNormalizer} (the text while it is scanned), so
+ * matching has the same substring semantics as
+ * {@code normalize(text).contains(normalize(term))}.
+ */
+public final class TermMatcher {
+
+    public enum Group {
+        LIA,
+        /** LIA terms used by the fetch filters; falls back to a default list when none are configured. */
+        LIA_FILTER,
+        JAVA,
+        NOT_LIA,
+        /** Built-in exclusion terms plus every configured not_lia_terms list. */
+        EXCLUSION,
+        HARD_EXCLUSION,
+        TITLE_EXCLUSION,
+        LOCATION,
+        REMOTE
+    }
+
+    public static final int TITLE = 1;
+    public static final int DESCRIPTION = 2;
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final TextNormalizer normalizer;
+    private final String[] patterns;
+    private final int[] patternGroups;
+    private final Entry[][] entriesByPattern;
+    private final Entry[] entriesBySeq;
+    private final int[] patternBySeq;
+
+    // Dense DFA: delta[state * stride + charClass]; class 0 is "not in any pattern"
+    private final int stride;
+    private final int[] delta;
+    private final int[][] output;
+    private final int[] outputGroups;
+    private final byte[] asciiClass = new byte[128];
+    private final char[] wideChars;
+    private final int[] wideClass;
+
+    private record Entry(Group group, String term, int seq) {
+    }
+
+    /** Terms visited by {@link Hits#forEach}. */
+    @FunctionalInterface
+    public interface TermVisitor {
+        void accept(String term, boolean inTitle, boolean inDescription);
+    }
+
+    public static TermMatcher forConfig(AppConfig cfg) {
+        AppConfig.SearchConfig search = cfg.search();
+        Builder b = new Builder(TextNormalizer.of(search.foldDiacritics() == null || search.foldDiacritics()));
+
+        b.addAll(Group.LIA, search.liaTerms());
+        b.addAll(Group.LIA_FILTER, search.liaTerms() != null ? search.liaTerms() : JobSearchService.DEFAULT_LIA_TERMS);
+        b.addAll(Group.JAVA, search.javaTerms());
+
+        List<String> notLia = search.notLiaTerms();
+        if (notLia == null || notLia.isEmpty()) {
+            notLia = (cfg.linkedin() != null) ? cfg.linkedin().notLiaTerms() : null;
+        }
+        b.addAll(Group.NOT_LIA, notLia);
+
+        b.addAll(Group.EXCLUSION, JobSearchService.EXCLUSION_TERMS);
+        b.addAll(Group.EXCLUSION, search.notLiaTerms());
+        if (cfg.linkedin() != null)
+            b.addAll(Group.EXCLUSION, cfg.linkedin().notLiaTerms());
+        b.addAll(Group.HARD_EXCLUSION, JobSearchService.HARD_EXCLUSION_TERMS);
+        b.addAll(Group.TITLE_EXCLUSION, JobSearchService.TITLE_EXCLUSION_TERMS);
+
+        b.addAll(Group.LOCATION, search.locations());
+        b.add(Group.REMOTE, "remote");
+        return b.build();
+    }
+
+    public static class Builder {
+        private final TextNormalizer normalizer;
+        private final Map<String, List<Entry>> entries = new LinkedHashMap<>();
+        private int seq;
+
+        public Builder(TextNormalizer normalizer) {
+            this.normalizer = normalizer;
+        }
+
+        public Builder add(Group group, String term) {
+            String pattern = normalizer.normalize(term);
+            if (pattern == null || pattern.isEmpty())
+                return this;
+            entries.computeIfAbsent(pattern, k -> new ArrayList<>()).add(new Entry(group, term, seq++));
+            return this;
+        }
+
+        public Builder addAll(Group group, List<String> terms) {
+            if (terms != null) {
+                for (String term : terms) {
+                    add(group, term);
+                }
+            }
+            return this;
+        }
+
+        public TermMatcher build() {
+            return new TermMatcher(normalizer, entries);
+        }
+    }
+
+    private TermMatcher(TextNormalizer normalizer, Map<String, List<Entry>> entries) {
+        this.normalizer = normalizer;
+        int n = entries.size();
+        patterns = entries.keySet().toArray(new String[0]);
+        entriesByPattern = new Entry[n][];
+        patternGroups = new int[n];
+        int entryCount = entries.values().stream().mapToInt(List::size).sum();
+        entriesBySeq = new Entry[entryCount];
+        patternBySeq = new int[entryCount];
+        for (int i = 0; i < n; i++) {
+            entriesByPattern[i] = entries.get(patterns[i]).toArray(new Entry[0]);
+            for (Entry e : entriesByPattern[i]) {
+                patternGroups[i] |= 1 << e.group().ordinal();
+                entriesBySeq[e.seq()] = e;
+                patternBySeq[e.seq()] = i;
+            }
+        }
+
+        // Alphabet: every distinct char used by a pattern gets its own class
+        TreeSet<Character> alphabet = new TreeSet<>();
+        for (String p : patterns) {
+            for (int i = 0; i < p.length(); i++) {
+                alphabet.add(p.charAt(i));
+            }
+        }
+        stride = alphabet.size() + 1;
+        int wideCount = (int) alphabet.stream().filter(c -> c >= 128).count();
+        wideChars = new char[wideCount];
+        wideClass = new int[wideCount];
+        int cls = 1;
+        int w = 0;
+        for (char c : alphabet) {
+            if (c < 128) {
+                asciiClass[c] = (byte) cls;
+            } else {
+                wideChars[w] = c;
+                wideClass[w++] = cls;
+            }
+            cls++;
+        }
+
+        // Trie
+        List<int[]> gotoTable = new ArrayList<>();
+        List<List<Integer>> nodeOutput = new ArrayList<>();
+        gotoTable.add(new int[stride]);
+        nodeOutput.add(new ArrayList<>());
+        for (int p = 0; p < n; p++) {
+            int state = 0;
+            for (int i = 0; i < patterns[p].length(); i++) {
+                int c = charClass(patterns[p].charAt(i));
+                int next = gotoTable.get(state)[c];
+                if (next == 0) {
+                    next = gotoTable.size();
+                    gotoTable.add(new int[stride]);
+                    nodeOutput.add(new ArrayList<>());
+                    gotoTable.get(state)[c] = next;
+                }
+                state = next;
+            }
+            nodeOutput.get(state).add(p);
+        }
+
+        // Failure links folded into a complete transition table (BFS order)
+        int states = gotoTable.size();
+        delta = new int[states * stride];
+        output = new int[states][];
+        outputGroups = new int[states];
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        for (int c = 1; c < stride; c++) {
+            int next = gotoTable.get(0)[c];
+            delta[c] = next;
+            if (next != 0) {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        output[0] = NO_OUTPUT;
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> own = nodeOutput.get(state);
+            int[] inherited = output[fail[state]];
+            int[] merged = new int[own.size() + inherited.length];
+            for (int i = 0; i < own.size(); i++) {
+                merged[i] = own.get(i);
+            }
+            System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+            output[state] = merged.length == 0 ? NO_OUTPUT : merged;
+            for (int p : merged) {
+                outputGroups[state] |= patternGroups[p];
+            }
+
+            for (int c = 1; c < stride; c++) {
+                int next = gotoTable.get(state)[c];
+                if (next != 0) {
+                    fail[next] = delta[fail[state] * stride + c];
+                    delta[state * stride + c] = next;
+                    queue.add(next);
+                } else {
+                    delta[state * stride + c] = delta[fail[state] * stride + c];
+                }
+            }
+        }
+    }
+
+    private int charClass(char c) {
+        if (c < 128)
+            return asciiClass[c];
+        int i = Arrays.binarySearch(wideChars, c);
+        return i >= 0 ? wideClass[i] : 0;
+    }
+
+    public TextNormalizer normalizer() {
+        return normalizer;
+    }
+
+    /** Number of distinct (normalized) terms; patterns are numbered from 0. */
+    public int patternCount() {
+        return patterns.length;
+    }
+
+    String pattern(int p) {
+        return patterns[p];
+    }
+
+    boolean inGroup(int p, Group group) {
+        return (patternGroups[p] & (1 << group.ordinal())) != 0;
+    }
+
+    /** Bit set of the {@link Group} ordinals the pattern belongs to. */
+    int groups(int p) {
+        return patternGroups[p];
+    }
+
+    public Hits newHits() {
+        return new Hits(patterns.length);
+    }
+
+    public Hits match(String title, String description) {
+        Hits hits = newHits();
+        scan(hits, title, TITLE);
+        scan(hits, description, DESCRIPTION);
+        return hits;
+    }
+
+    /**
+     * Adds every term occurrence in {@code text} to {@code hits}, tagged with
+     * {@code field}. The text may be raw or already normalized by this
+     * matcher's normalizer; both give the same hits.
+     */
+    public void scan(Hits hits, CharSequence text, int field) {
+        if (text == null)
+            return;
+        int state = 0;
+        int groups = 0;
+        boolean space = false;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = normalizer.fold(text.charAt(i));
+            // Whitespace runs count as one space, as in normalized terms
+            if (c == TextNormalizer.DROP || (c == ' ' && space))
+                continue;
+            space = c == ' ';
+            state = delta[state * stride + charClass(c)];
+            int[] out = output[state];
+            if (out.length != 0) {
+                groups |= outputGroups[state];
+                for (int p : out) {
+                    hits.mark(p, field);
+                }
+            }
+        }
+        if (field == TITLE) {
+            hits.titleGroups |= groups;
+        } else {
+            hits.descriptionGroups |= groups;
+        }
+    }
+
+    /**
+     * Same as {@link #scan(Hits, CharSequence, int)} over UTF-8 encoded text,
+     * decoding as it goes so the text never becomes a String.
+     */
+    public void scanUtf8(Hits hits, byte[] text, int offset, int length, int field) {
+        int state = 0;
+        int groups = 0;
+        int end = offset + length;
+        int i = offset;
+        boolean space = false;
+        while (i < end) {
+            int b = text[i++];
+            char c;
+            char low = 0;
+            if (b >= 0) {
+                c = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                c = (char) (((b & 0x1F) << 6) | (text[i++] & 0x3F));
+            } else if ((b & 0xF0) == 0xE0) {
+                c = (char) (((b & 0x0F) << 12) | ((text[i] & 0x3F) << 6) | (text[i + 1] & 0x3F));
+                i += 2;
+            } else {
+                int cp = ((b & 0x07) << 18) | ((text[i] & 0x3F) << 12) | ((text[i + 1] & 0x3F) << 6)
+                        | (text[i + 2] & 0x3F);
+                i += 3;
+                c = Character.highSurrogate(cp);
+                low = Character.lowSurrogate(cp);
+            }
+
+            c = normalizer.fold(c);
+            if (c == TextNormalizer.DROP || (c == ' ' && space))
+                continue;
+            space = c == ' ';
+            state = delta[state * stride + charClass(c)];
+            if (low != 0)
+                state = delta[state * stride + charClass(low)];
+            int[] out = output[state];
+            if (out.length != 0) {
+                groups |= outputGroups[state];
+                for (int p : out) {
+                    hits.mark(p, field);
+                }
+            }
+        }
+        if (field == TITLE) {
+            hits.titleGroups |= groups;
+        } else {
+            hits.descriptionGroups |= groups;
+        }
+    }
+
+    /** Match state for one listing. Can be {@link #clear() cleared} and reused. */
+    public final class Hits {
+        private final byte[] fieldFlags;
+        private final int[] titleCounts;
+        private final int[] descriptionCounts;
+        private final int[] matched;
+        // Scratch for forEach, so visiting the terms does not allocate per listing
+        private final int[] seqs;
+        private int matchedCount;
+        private int titleGroups;
+        private int descriptionGroups;
+
+        private Hits(int patternCount) {
+            fieldFlags = new byte[patternCount];
+            titleCounts = new int[patternCount];
+            descriptionCounts = new int[patternCount];
+            matched = new int[patternCount];
+            seqs = new int[entriesBySeq.length];
+        }
+
+        private void mark(int pattern, int field) {
+            if (fieldFlags[pattern] == 0) {
+                matched[matchedCount++] = pattern;
+            }
+            fieldFlags[pattern] |= (byte) field;
+            if (field == TITLE) {
+                titleCounts[pattern]++;
+            } else {
+                descriptionCounts[pattern]++;
+            }
+        }
+
+        public void clear() {
+            for (int i = 0; i < matchedCount; i++) {
+                int p = matched[i];
+                fieldFlags[p] = 0;
+                titleCounts[p] = 0;
+                descriptionCounts[p] = 0;
+            }
+            matchedCount = 0;
+            titleGroups = 0;
+            descriptionGroups = 0;
+        }
+
+        /** Number of distinct patterns matched so far. */
+        public int matchedCount() {
+            return matchedCount;
+        }
+
+        /** The i-th matched pattern, in the order they were first seen. */
+        public int matchedPattern(int i) {
+            return matched[i];
+        }
+
+        /** Occurrences of the pattern in the title. */
+        int titleCount(int pattern) {
+            return titleCounts[pattern];
+        }
+
+        int descriptionCount(int pattern) {
+            return descriptionCounts[pattern];
+        }
+
+        public boolean inTitle(Group group) {
+            return (titleGroups & (1 << group.ordinal())) != 0;
+        }
+
+        public boolean inDescription(Group group) {
+            return (descriptionGroups & (1 << group.ordinal())) != 0;
+        }
+
+        public boolean any(Group group) {
+            return ((titleGroups | descriptionGroups) & (1 << group.ordinal())) != 0;
+        }
+
+        /**
+         * Visits the matched terms of {@code group} in configuration order. A term
+         * listed twice in the config is visited twice.
+         */
+        public void forEach(Group group, TermVisitor visitor) {
+            if (!any(group))
+                return;
+            int found = 0;
+            for (int i = 0; i < matchedCount; i++) {
+                for (Entry e : entriesByPattern[matched[i]]) {
+                    if (e.group() == group)
+                        seqs[found++] = e.seq();
+                }
+            }
+            Arrays.sort(seqs, 0, found);
+            for (int i = 0; i < found; i++) {
+                int p = patternBySeq[seqs[i]];
+                visitor.accept(entriesBySeq[seqs[i]].term(), (fieldFlags[p] & TITLE) != 0,
+                        (fieldFlags[p] & DESCRIPTION) != 0);
+            }
+        }
+    }
+}
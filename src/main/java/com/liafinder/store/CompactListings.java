@@ -0,0 +1,266 @@
+package com.liafinder.store;
+
+import com.liafinder.model.Listing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column store for a large number of listings, addressed by document number.
+ *
+ * <p>Employer, location and source are interned: each distinct value is held
+ * once and referenced by an int. Titles and descriptions are appended as UTF-8
+ * to one shared byte arena and decoded only when asked for, or scanned in
+ * place with {@code TermMatcher.scanUtf8}. Scores and flags are primitive
+ * arrays. Compared to a {@link Listing} per ad this drops the per-listing
+ * object headers, the repeated employer and location strings, and the two
+ * bytes per char a String needs once a description contains a single
+ * character outside Latin-1.
+ */
+public class CompactListings {
+    public static final byte DELETED = 1;
+    public static final byte SCORED = 2;
+
+    private static final int NULL = -1;
+
+    private final Map<String, Integer> internIds = new HashMap<>();
+    private final List<String> interned = new ArrayList<>();
+
+    private String[] ids = new String[64];
+    private String[] urls = new String[64];
+    private int[] company = new int[64];
+    private int[] location = new int[64];
+    private int[] source = new int[64];
+    // [offset, length] in the arena; length NULL for a null field
+    private long[] title = new long[64];
+    private long[] description = new long[64];
+    private double[] scores = new double[64];
+    private byte[] flags = new byte[64];
+    private int[] titleTokens = new int[64];
+    private int[] descriptionTokens = new int[64];
+    private int size;
+    private int deleted;
+    private long scoredWith;
+
+    private byte[] arena = new byte[64 * 1024];
+    private int arenaSize;
+
+    public int add(Listing l) {
+        return add(l.id, l.url, utf8(l.title), l.company, l.location, utf8(l.description), l.source);
+    }
+
+    /** Adds a listing whose title and description are already UTF-8 (null for a null field). */
+    public int add(String id, String url, byte[] titleUtf8, String company, String location,
+            byte[] descriptionUtf8, String source) {
+        if (size == ids.length)
+            grow();
+        int doc = size++;
+        ids[doc] = id;
+        urls[doc] = url;
+        this.company[doc] = intern(company);
+        this.location[doc] = intern(location);
+        this.source[doc] = intern(source);
+        title[doc] = append(titleUtf8);
+        description[doc] = append(descriptionUtf8);
+        return doc;
+    }
+
+    /** A new {@link Listing} with the document's fields decoded. */
+    public Listing get(int doc) {
+        Listing l = new Listing(title(doc), company(doc), location(doc), urls[doc], description(doc), source(doc));
+        l.id = ids[doc];
+        return l;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int liveCount() {
+        return size - deleted;
+    }
+
+    public String id(int doc) {
+        return ids[doc];
+    }
+
+    public String url(int doc) {
+        return urls[doc];
+    }
+
+    public String title(int doc) {
+        return decode(title[doc]);
+    }
+
+    public String description(int doc) {
+        return decode(description[doc]);
+    }
+
+    public String company(int doc) {
+        return lookup(company[doc]);
+    }
+
+    public String location(int doc) {
+        return lookup(location[doc]);
+    }
+
+    public String source(int doc) {
+        return lookup(source[doc]);
+    }
+
+    /** The arena that the offsets below point into; it is replaced when it grows. */
+    public byte[] arena() {
+        return arena;
+    }
+
+    public int titleOffset(int doc) {
+        return offset(title[doc]);
+    }
+
+    /** Byte length of the UTF-8 title, or -1 when it is null. */
+    public int titleLength(int doc) {
+        return length(title[doc]);
+    }
+
+    public int descriptionOffset(int doc) {
+        return offset(description[doc]);
+    }
+
+    /** Byte length of the UTF-8 description, or -1 when it is null. */
+    public int descriptionLength(int doc) {
+        return length(description[doc]);
+    }
+
+    /** Number of words in the title, as counted by the index; 0 until set. */
+    public int titleTokens(int doc) {
+        return titleTokens[doc];
+    }
+
+    public int descriptionTokens(int doc) {
+        return descriptionTokens[doc];
+    }
+
+    public void setTokenCounts(int doc, int title, int description) {
+        titleTokens[doc] = title;
+        descriptionTokens[doc] = description;
+    }
+
+    public double score(int doc) {
+        return scores[doc];
+    }
+
+    /** Stores a score computed under the hash last given to {@link #useScoresOf}, and flags it {@link #SCORED}. */
+    public void setScore(int doc, double score) {
+        scores[doc] = score;
+        flags[doc] |= SCORED;
+    }
+
+    /**
+     * Forgets every stored score unless they were computed under the same
+     * scoring hash, so documents flagged {@link #SCORED} can be reused as is.
+     */
+    public void useScoresOf(long scoringHash) {
+        if (scoringHash == scoredWith)
+            return;
+        for (int doc = 0; doc < size; doc++) {
+            flags[doc] &= ~SCORED;
+        }
+        scoredWith = scoringHash;
+    }
+
+    public boolean has(int doc, byte flag) {
+        return (flags[doc] & flag) != 0;
+    }
+
+    public boolean isDeleted(int doc) {
+        return has(doc, DELETED);
+    }
+
+    public void delete(int doc) {
+        if (!isDeleted(doc)) {
+            flags[doc] |= DELETED;
+            deleted++;
+        }
+    }
+
+    /** Drops the spare capacity left by growing; call after a bulk load. */
+    public void trim() {
+        if (arena.length > arenaSize)
+            arena = Arrays.copyOf(arena, arenaSize);
+        if (ids.length > size)
+            resize(Math.max(size, 1));
+    }
+
+    /** Rough heap footprint: arrays, arena and interned strings, not the id and URL strings. */
+    public long approximateBytes() {
+        long perDoc = 2L * 4 + 5 * 4 + 2 * 8 + 8 + 1; // two references, five ints, two longs, score, flags
+        long strings = interned.stream().mapToLong(s -> 40 + s.length()).sum();
+        return (long) ids.length * perDoc + arena.length + strings;
+    }
+
+    private void grow() {
+        resize(size * 2);
+    }
+
+    private void resize(int n) {
+        ids = Arrays.copyOf(ids, n);
+        urls = Arrays.copyOf(urls, n);
+        company = Arrays.copyOf(company, n);
+        location = Arrays.copyOf(location, n);
+        source = Arrays.copyOf(source, n);
+        title = Arrays.copyOf(title, n);
+        description = Arrays.copyOf(description, n);
+        scores = Arrays.copyOf(scores, n);
+        flags = Arrays.copyOf(flags, n);
+        titleTokens = Arrays.copyOf(titleTokens, n);
+        descriptionTokens = Arrays.copyOf(descriptionTokens, n);
+    }
+
+    private int intern(String s) {
+        if (s == null)
+            return NULL;
+        Integer id = internIds.get(s);
+        if (id == null) {
+            id = interned.size();
+            interned.add(s);
+            internIds.put(s, id);
+        }
+        return id;
+    }
+
+    private String lookup(int id) {
+        return id == NULL ? null : interned.get(id);
+    }
+
+    private long append(byte[] bytes) {
+        if (bytes == null)
+            return NULL & 0xFFFFFFFFL;
+        if (arenaSize + bytes.length > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + bytes.length));
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        long slot = (long) arenaSize << 32 | bytes.length;
+        arenaSize += bytes.length;
+        return slot;
+    }
+
+    private String decode(long slot) {
+        int len = length(slot);
+        return len < 0 ? null : new String(arena, offset(slot), len, StandardCharsets.UTF_8);
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    private static int length(long slot) {
+        return (int) slot;
+    }
+
+    private static byte[] utf8(String s) {
+        return s != null ? s.getBytes(StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,143 @@
+package com.liafinder.store;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.liafinder.config.AppConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Disk cache of API response bodies under {@code <data_dir>/http-cache}, one
+ * body file plus one metadata file (ETag, Last-Modified, time stored) per
+ * request URI. Entries younger than the TTL are served without a request;
+ * older ones are revalidated with a conditional request.
+ */
+public class HttpCache {
+    private static final String CACHE_DIR = "http-cache";
+    private static final int DEFAULT_TTL_MINUTES = 30;
+
+    private final Path dir;
+    private final Duration ttl;
+    private final boolean offline;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Entry(
+            String uri,
+            String etag,
+            @JsonProperty("last_modified") String lastModified,
+            @JsonProperty("stored_at") String storedAt) {
+    }
+
+    /** Returns null when caching is disabled in the config. */
+    public static HttpCache open(AppConfig cfg) throws IOException {
+        AppConfig.CacheConfig c = cfg.cache();
+        if (c == null || !c.enabled())
+            return null;
+        int ttlMinutes = c.ttlMinutes() > 0 ? c.ttlMinutes() : DEFAULT_TTL_MINUTES;
+        return new HttpCache(Paths.get(cfg.dataDir(), CACHE_DIR), Duration.ofMinutes(ttlMinutes), c.offline());
+    }
+
+    public HttpCache(Path dir, Duration ttl, boolean offline) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.ttl = ttl;
+        this.offline = offline;
+    }
+
+    /** In offline mode only cached bodies are used and no request is ever sent. */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public Entry lookup(URI uri) {
+        String key = key(uri);
+        Path meta = dir.resolve(key + ".meta");
+        if (!Files.exists(meta) || !Files.exists(dir.resolve(key + ".body")))
+            return null;
+        try {
+            Entry entry = mapper.readValue(meta.toFile(), Entry.class);
+            return uri.toString().equals(entry.uri()) ? entry : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public boolean isFresh(Entry entry) {
+        return entry.storedAt() != null && Instant.parse(entry.storedAt()).plus(ttl).isAfter(Instant.now());
+    }
+
+    /** Adds If-None-Match / If-Modified-Since for a stale entry. */
+    public void addConditionalHeaders(HttpRequest.Builder request, Entry entry) {
+        if (entry == null)
+            return;
+        if (entry.etag() != null)
+            request.header("If-None-Match", entry.etag());
+        if (entry.lastModified() != null)
+            request.header("If-Modified-Since", entry.lastModified());
+    }
+
+    public InputStream openBody(Entry entry) throws IOException {
+        return Files.newInputStream(dir.resolve(key(URI.create(entry.uri())) + ".body"));
+    }
+
+    /** Marks a revalidated (304) entry as fresh again. */
+    public Entry touch(Entry entry) throws IOException {
+        Entry refreshed = new Entry(entry.uri(), entry.etag(), entry.lastModified(), Instant.now().toString());
+        writeMeta(refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Streams a 200 response body to disk, replacing any previous entry
+     * atomically, and returns the new entry. The body stream is closed.
+     */
+    public Entry store(URI uri, HttpHeaders headers, InputStream body) throws IOException {
+        String key = key(uri);
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try (body) {
+            Files.copy(body, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, dir.resolve(key + ".body"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        Entry entry = new Entry(uri.toString(), headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null), Instant.now().toString());
+        writeMeta(entry);
+        return entry;
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        String key = key(URI.create(entry.uri()));
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        mapper.writeValue(tmp.toFile(), entry);
+        Files.move(tmp, dir.resolve(key + ".meta"), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(URI uri) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(uri.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
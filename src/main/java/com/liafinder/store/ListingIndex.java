@@ -0,0 +1,547 @@
+package com.liafinder.store;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.Listing;
+import com.liafinder.model.TextNormalizer;
+import com.liafinder.service.TermMatcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index over the titles and descriptions of stored listings, kept in
+ * {@code <data_dir>/listings.inv} so listings can be searched and re-ranked
+ * without fetching them again.
+ *
+ * <p>Each document is a listing, numbered in the order it was added. A term's
+ * posting list is a growable {@code int[]} of {@code doc << 1 | inTitle},
+ * ascending because documents only ever get appended. Adding a listing that
+ * is already indexed (the same {@link ListingStore#identity ad}) replaces the
+ * old document; the old one is only marked deleted and dropped when the index
+ * is saved. The documents themselves are held in a {@link CompactListings}.
+ *
+ * <p>Corpus statistics for relevance scoring are kept up to date on every
+ * add: the number of live documents per term, and the word counts of each
+ * document's title and description with their live totals. Relevance
+ * scoring matches terms anywhere in the text, not only as whole words, so the
+ * number of live documents per {@link TermMatcher} pattern is kept as well,
+ * for the matcher last asked about.
+ *
+ * <p>The saved file records how far into the store's log it goes. Listings
+ * the store took after that, such as the edits of a run that ended before
+ * saving the index, are replayed from the log when the index is opened.
+ */
+public class ListingIndex {
+    private static final String INDEX_FILE = "listings.inv";
+    private static final int MAGIC = 0x4C494E56; // "LINV"
+    private static final int VERSION = 5;
+
+    private final Path file;
+    private final ListingStore store;
+    // Id, length and line count of the store's log when this index was last saved
+    private long storeLogId;
+    private long storeLength;
+    private long storeRecords;
+    private final CompactListings docs = new CompactListings();
+    // Keyed by ListingStore.identity, so the index and the store agree on what is the same ad
+    private final Map<String, Integer> docByAd = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private long titleTokens;
+    private long descriptionTokens;
+    private TermMatcher counted;
+    private TermMatcher.Hits countedHits;
+    private int[] patternFrequencies;
+
+    /** Growable sorted list of {@code doc << 1 | inTitle}, with counts of the live documents in it. */
+    private static final class Postings {
+        int[] data = new int[4];
+        int size;
+        int live;
+        int liveInTitle;
+
+        void add(int value) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+            live++;
+            liveInTitle += value & 1;
+        }
+    }
+
+    /**
+     * Loads the index of the given store and replays what the store took
+     * since it was saved. It is rebuilt from the store when the file is
+     * missing or unreadable, or the store's log was compacted since.
+     */
+    public static ListingIndex open(AppConfig cfg, ListingStore store) throws IOException {
+        Path file = Paths.get(cfg.dataDir(), INDEX_FILE);
+        ListingIndex index = new ListingIndex(file, store);
+        if (Files.exists(file)) {
+            try {
+                index.load();
+                if (index.catchUp())
+                    return index;
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable listing index: " + e.getMessage());
+            }
+        }
+
+        System.out.println("Building search index from " + store.size() + " stored listings...");
+        index = new ListingIndex(file, store);
+        for (Listing l : store.loadAll()) {
+            index.add(l);
+        }
+        index.docs.trim();
+        index.save();
+        return index;
+    }
+
+    private ListingIndex(Path file, ListingStore store) {
+        this.file = file;
+        this.store = store;
+    }
+
+    /** Indexes the lines appended to the store's log since the save; false when the log was rewritten since. */
+    private boolean catchUp() throws IOException {
+        if (store.logId() != storeLogId)
+            return false;
+        long length = store.logLength();
+        long records = store.records();
+        if (length == storeLength && records == storeRecords)
+            return size() == store.size();
+        if (length < storeLength || records < storeRecords)
+            return false;
+
+        List<Listing> appended = store.loadFrom(storeLength);
+        System.out.println("Updating search index with " + appended.size() + " listings stored since it was saved...");
+        for (Listing l : appended) {
+            add(l);
+        }
+        if (size() != store.size())
+            return false;
+        save();
+        return true;
+    }
+
+    /** Indexes a listing, replacing an earlier version of the same ad. Listings without a URL are skipped. */
+    public synchronized void add(Listing l) {
+        if (l.url == null || l.url.isEmpty())
+            return;
+
+        int doc = docs.add(l);
+        Integer previous = docByAd.put(ListingStore.identity(l.id, l.url), doc);
+        if (previous != null)
+            remove(previous);
+
+        // Each term is posted once per document; a title occurrence sets the low bit
+        Map<String, Boolean> terms = new HashMap<>();
+        int[] counts = new int[2];
+        tokenize(l.title, t -> {
+            terms.put(t, Boolean.TRUE);
+            counts[0]++;
+        });
+        tokenize(l.description, t -> {
+            terms.putIfAbsent(t, Boolean.FALSE);
+            counts[1]++;
+        });
+        terms.forEach((term, inTitle) -> postings.computeIfAbsent(term, k -> new Postings())
+                .add(doc << 1 | (inTitle ? 1 : 0)));
+        countPatterns(doc, 1);
+        docs.setTokenCounts(doc, counts[0], counts[1]);
+        titleTokens += counts[0];
+        descriptionTokens += counts[1];
+    }
+
+    /** Marks a document deleted and takes it out of the live counts; its postings stay until the next save. */
+    private void remove(int doc) {
+        docs.delete(doc);
+        titleTokens -= docs.titleTokens(doc);
+        descriptionTokens -= docs.descriptionTokens(doc);
+        countPatterns(doc, -1);
+        Map<String, Boolean> terms = new HashMap<>();
+        tokenize(docs.title(doc), t -> terms.put(t, Boolean.TRUE));
+        tokenize(docs.description(doc), t -> terms.putIfAbsent(t, Boolean.FALSE));
+        terms.forEach((term, inTitle) -> {
+            Postings p = postings.get(term);
+            p.live--;
+            if (inTitle)
+                p.liveInTitle--;
+        });
+    }
+
+    /**
+     * Live listings containing every word of the query, in title or
+     * description, in the order they were indexed. A blank query matches all.
+     */
+    public synchronized List<Listing> search(String query) {
+        int[] found = searchDocs(query);
+        List<Listing> out = new ArrayList<>(found.length);
+        for (int doc : found) {
+            out.add(docs.get(doc));
+        }
+        return out;
+    }
+
+    /** Like {@link #search}, as document numbers in {@link #documents()}. */
+    public synchronized int[] searchDocs(String query) {
+        Set<String> words = new LinkedHashSet<>();
+        tokenize(query, words::add);
+        if (words.isEmpty())
+            return liveDocs();
+
+        // Intersect the shortest lists first
+        List<Postings> lists = new ArrayList<>(words.size());
+        for (String w : words) {
+            Postings p = postings.get(w);
+            if (p == null)
+                return new int[0];
+            lists.add(p);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int[] result = new int[lists.get(0).size];
+        int n = 0;
+        Postings first = lists.get(0);
+        for (int i = 0; i < first.size; i++) {
+            result[n++] = first.data[i] >>> 1;
+        }
+        for (int l = 1; l < lists.size() && n > 0; l++) {
+            n = intersect(result, n, lists.get(l));
+        }
+
+        int live = 0;
+        for (int i = 0; i < n; i++) {
+            if (!docs.isDeleted(result[i]))
+                result[live++] = result[i];
+        }
+        return Arrays.copyOf(result, live);
+    }
+
+    /** Keeps the docs in {@code result[0..n)} that also occur in {@code p}; returns the new count. */
+    private static int intersect(int[] result, int n, Postings p) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < n && j < p.size; i++) {
+            int doc = result[i];
+            while (j < p.size && (p.data[j] >>> 1) < doc) {
+                j++;
+            }
+            if (j < p.size && (p.data[j] >>> 1) == doc)
+                result[kept++] = doc;
+        }
+        return kept;
+    }
+
+    /** Number of live listings containing the word, and how many of them have it in the title. */
+    public synchronized int[] documentFrequency(String word) {
+        Postings p = postings.get(word);
+        return p != null ? new int[] { p.live, p.liveInTitle } : new int[] { 0, 0 };
+    }
+
+    /**
+     * Number of live listings in which each pattern of the matcher occurs,
+     * counted the way the matcher scans a listing when scoring it. The first
+     * call for a matcher scans every document; after that the counts are
+     * kept up to date as listings are added, until another matcher is asked
+     * about.
+     */
+    public synchronized int[] patternFrequencies(TermMatcher matcher) {
+        if (matcher != counted) {
+            counted = matcher;
+            countedHits = matcher.newHits();
+            patternFrequencies = new int[matcher.patternCount()];
+            for (int doc = 0; doc < docs.size(); doc++) {
+                if (!docs.isDeleted(doc))
+                    countPatterns(doc, 1);
+            }
+        }
+        return patternFrequencies.clone();
+    }
+
+    private void countPatterns(int doc, int delta) {
+        if (counted == null)
+            return;
+        countedHits.clear();
+        if (docs.titleLength(doc) >= 0) {
+            counted.scanUtf8(countedHits, docs.arena(), docs.titleOffset(doc), docs.titleLength(doc),
+                    TermMatcher.TITLE);
+        }
+        if (docs.descriptionLength(doc) >= 0) {
+            counted.scanUtf8(countedHits, docs.arena(), docs.descriptionOffset(doc), docs.descriptionLength(doc),
+                    TermMatcher.DESCRIPTION);
+        }
+        for (int i = 0; i < countedHits.matchedCount(); i++) {
+            patternFrequencies[countedHits.matchedPattern(i)] += delta;
+        }
+    }
+
+    /** Mean number of words in a live listing's title. */
+    public synchronized double averageTitleLength() {
+        return size() > 0 ? (double) titleTokens / size() : 0;
+    }
+
+    public synchronized double averageDescriptionLength() {
+        return size() > 0 ? (double) descriptionTokens / size() : 0;
+    }
+
+    /** Every live listing, decoded into new {@link Listing} objects. */
+    public synchronized List<Listing> listings() {
+        List<Listing> out = new ArrayList<>(size());
+        for (int doc : liveDocs()) {
+            out.add(docs.get(doc));
+        }
+        return out;
+    }
+
+    /**
+     * The document store. Callers other than the index must only read it;
+     * document numbers stay valid until the index is reloaded.
+     */
+    public CompactListings documents() {
+        return docs;
+    }
+
+    private int[] liveDocs() {
+        int[] live = new int[docs.liveCount()];
+        int n = 0;
+        for (int doc = 0; doc < docs.size(); doc++) {
+            if (!docs.isDeleted(doc))
+                live[n++] = doc;
+        }
+        return live;
+    }
+
+    public synchronized int size() {
+        return docs.liveCount();
+    }
+
+    public synchronized int termCount() {
+        return postings.size();
+    }
+
+    /** Number of words {@link #tokenize} would produce, without creating them. */
+    public static int countTokens(CharSequence text) {
+        if (text == null)
+            return 0;
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = TextNormalizer.FULL.fold(text.charAt(i));
+            if (c == TextNormalizer.DROP)
+                continue;
+            boolean letter = Character.isLetterOrDigit(c);
+            if (letter && !inWord)
+                count++;
+            inWord = letter;
+        }
+        return count;
+    }
+
+    /**
+     * Runs of letters and digits, folded by {@link TextNormalizer#FULL};
+     * everything else separates words, so "Spring Boot/Java-utvecklare" gives
+     * spring, boot, java, utvecklare and "Lärande" gives larande.
+     */
+    public static void tokenize(CharSequence text, Consumer<String> sink) {
+        if (text == null)
+            return;
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? TextNormalizer.FULL.fold(text.charAt(i)) : ' ';
+            if (c == TextNormalizer.DROP)
+                continue;
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                sink.accept(word.toString());
+                word.setLength(0);
+            }
+        }
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Writes live documents and their postings, renumbered without the
+     * deleted ones. Postings are stored as varint deltas. The file is
+     * replaced atomically. Everything put into the store must have been
+     * added by then, since the file is marked as up to date with it.
+     */
+    public synchronized void save() throws IOException {
+        long logId = store.logId();
+        long length = store.logLength();
+        long records = store.records();
+        int[] remap = new int[docs.size()];
+        int live = 0;
+        for (int doc = 0; doc < docs.size(); doc++) {
+            remap[doc] = docs.isDeleted(doc) ? -1 : live++;
+        }
+
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), INDEX_FILE, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(logId);
+                out.writeLong(length);
+                out.writeLong(records);
+                out.writeInt(live);
+                for (int doc = 0; doc < docs.size(); doc++) {
+                    if (remap[doc] < 0)
+                        continue;
+                    writeString(out, docs.id(doc));
+                    writeString(out, docs.url(doc));
+                    writeBytes(out, docs.arena(), docs.titleOffset(doc), docs.titleLength(doc));
+                    writeString(out, docs.company(doc));
+                    writeString(out, docs.location(doc));
+                    writeBytes(out, docs.arena(), docs.descriptionOffset(doc), docs.descriptionLength(doc));
+                    writeString(out, docs.source(doc));
+                    writeVarint(out, docs.titleTokens(doc));
+                    writeVarint(out, docs.descriptionTokens(doc));
+                }
+
+                int[] buf = new int[16];
+                out.writeInt(postings.size());
+                for (Map.Entry<String, Postings> e : postings.entrySet()) {
+                    Postings p = e.getValue();
+                    if (buf.length < p.size)
+                        buf = new int[p.size];
+                    int n = 0;
+                    for (int i = 0; i < p.size; i++) {
+                        int doc = remap[p.data[i] >>> 1];
+                        if (doc >= 0)
+                            buf[n++] = doc << 1 | (p.data[i] & 1);
+                    }
+                    // Terms whose documents were all deleted are written with no postings and skipped on load
+                    writeString(out, e.getKey());
+                    writeVarint(out, n);
+                    int prev = 0;
+                    for (int i = 0; i < n; i++) {
+                        writeVarint(out, buf[i] - prev);
+                        prev = buf[i];
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            storeLogId = logId;
+            storeLength = length;
+            storeRecords = records;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("not a listing index: " + file);
+
+            storeLogId = in.readLong();
+            storeLength = in.readLong();
+            storeRecords = in.readLong();
+            int count = in.readInt();
+            for (int doc = 0; doc < count; doc++) {
+                // Title and description go into the arena as they are, without decoding
+                String id = readString(in);
+                String url = readString(in);
+                byte[] title = readBytes(in);
+                String company = readString(in);
+                String location = readString(in);
+                byte[] description = readBytes(in);
+                docs.add(id, url, title, company, location, description, readString(in));
+                int titleCount = readVarint(in);
+                int descriptionCount = readVarint(in);
+                docs.setTokenCounts(doc, titleCount, descriptionCount);
+                titleTokens += titleCount;
+                descriptionTokens += descriptionCount;
+                docByAd.put(ListingStore.identity(id, url), doc);
+            }
+
+            int terms = in.readInt();
+            for (int t = 0; t < terms; t++) {
+                String term = readString(in);
+                int n = readVarint(in);
+                if (n == 0)
+                    continue;
+                Postings p = new Postings();
+                p.data = new int[n];
+                int prev = 0;
+                for (int i = 0; i < n; i++) {
+                    prev += readVarint(in);
+                    p.data[i] = prev;
+                    p.liveInTitle += prev & 1;
+                }
+                p.size = n;
+                p.live = n;
+                postings.put(term, p);
+            }
+        }
+        docs.trim();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeBytes(out, bytes, 0, bytes.length);
+    }
+
+    /** Length + 1 then the bytes; a length of -1 (null) is written as 0. */
+    private static void writeBytes(DataOutputStream out, byte[] bytes, int offset, int length) throws IOException {
+        writeVarint(out, length + 1);
+        if (length > 0)
+            out.write(bytes, offset, length);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int len = readVarint(in);
+        if (len == 0)
+            return null;
+        byte[] bytes = new byte[len - 1];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("malformed varint");
+    }
+}
@@ -0,0 +1,459 @@
+package com.liafinder.store;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.Listing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * On-disk store of every listing seen so far, under {@code output.data_dir}.
+ *
+ * <p>Listings are appended as JSON lines to {@code listings.log}; a newer line
+ * for the same ad supersedes the older one. An ad is identified by its
+ * JobTech id, or by its URL when it has none (see {@link #identity}), so an
+ * ad that moves to a new URL stays one ad. {@code listings.idx} is a sorted
+ * table of (key hash, log offset, content hash) entries for both the URL and
+ * the JobTech ad id, read into memory and binary-searched on lookup. Lines
+ * appended after the index was last written are replayed into a small
+ * in-memory map on open. {@link #flush()} rewrites the index and compacts the
+ * log once most of its lines are superseded.
+ */
+public class ListingStore implements Closeable {
+
+    public enum PutResult {
+        NEW, CHANGED, UNCHANGED
+    }
+
+    private static final String LOG_FILE = "listings.log";
+    private static final String INDEX_FILE = "listings.idx";
+    private static final int INDEX_MAGIC = 0x4C494458; // "LIDX"
+    private static final int INDEX_VERSION = 2;
+    // magic, version, indexed log length, record count, live count, entry count, log id
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 8;
+    // key hash, log offset, content hash
+    private static final int ENTRY_BYTES = 8 + 8 + 4;
+    private static final long COMPACT_MIN_RECORDS = 1000;
+
+    private final Path logPath;
+    private final Path indexPath;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private FileChannel log;
+    // Read onto the heap rather than mapped: Windows refuses to replace a file that is still mapped
+    private ByteBuffer index;
+    private int indexCount;
+    private long indexedLogLength;
+    private long logId;
+
+    // Entries for lines appended after the index file was written; these win over the index
+    private final Map<Long, Slot> tail = new HashMap<>();
+    private long records;
+    private long live;
+
+    private record Slot(long offset, int contentHash) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record StoredListing(
+            String id,
+            String url,
+            String title,
+            String company,
+            String location,
+            String description,
+            String source,
+            @JsonProperty("stored_at") String storedAt) {
+
+        Listing toListing() {
+            Listing l = new Listing(title, company, location, url, description, source);
+            l.id = id;
+            return l;
+        }
+    }
+
+    public static ListingStore open(AppConfig cfg) throws IOException {
+        return new ListingStore(Paths.get(cfg.dataDir()));
+    }
+
+    public ListingStore(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.logPath = dir.resolve(LOG_FILE);
+        this.indexPath = dir.resolve(INDEX_FILE);
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        loadIndex();
+        if (index == null)
+            logId = ThreadLocalRandom.current().nextLong();
+        replay(indexedLogLength);
+    }
+
+    public static int contentHash(Listing l) {
+        return Objects.hash(l.title, l.company, l.location, l.description);
+    }
+
+    /** What makes two listings the same ad: the id when there is one, otherwise the URL. */
+    public static String identity(String id, String url) {
+        return id != null && !id.isEmpty() ? "i:" + id : "u:" + url;
+    }
+
+    public synchronized boolean contains(Listing l) {
+        return lookup(identityKey(l.id, l.url)) != null;
+    }
+
+    public synchronized boolean containsUrl(String url) {
+        return url != null && lookup(urlKey(url)) != null;
+    }
+
+    /** Latest stored version of the listing with this URL, or null. */
+    public synchronized Listing get(String url) throws IOException {
+        Slot slot = url != null ? lookup(urlKey(url)) : null;
+        if (slot == null)
+            return null;
+        StoredListing stored = readRecord(slot.offset());
+        // Guard against a 64-bit hash collision
+        return url.equals(stored.url()) ? stored.toListing() : null;
+    }
+
+    /**
+     * Appends the listing if it is new, its content changed since it was
+     * stored, or it moved to a URL not stored for it yet. Listings without a
+     * URL are never stored and reported as NEW.
+     */
+    public synchronized PutResult put(Listing l) throws IOException {
+        if (l.url == null || l.url.isEmpty())
+            return PutResult.NEW;
+
+        int hash = contentHash(l);
+        Slot existing = lookup(identityKey(l.id, l.url));
+        if (existing != null && existing.contentHash() == hash && existing.equals(lookup(urlKey(l.url))))
+            return PutResult.UNCHANGED;
+
+        StoredListing stored = new StoredListing(l.id, l.url, l.title, l.company, l.location, l.description,
+                l.source, Instant.now().toString());
+        byte[] line = mapper.writeValueAsBytes(stored);
+        long offset = log.size();
+        ByteBuffer buf = ByteBuffer.allocate(line.length + 1);
+        buf.put(line).put((byte) '\n').flip();
+        while (buf.hasRemaining()) {
+            log.write(buf, offset + buf.position());
+        }
+
+        records++;
+        if (existing == null)
+            live++;
+        index(stored, new Slot(offset, hash));
+        return existing == null ? PutResult.NEW : PutResult.CHANGED;
+    }
+
+    /** Latest version of every stored listing, in the order they were first written. */
+    public synchronized List<Listing> loadAll() throws IOException {
+        List<Listing> all = new ArrayList<>();
+        forEachLine(0, log.size(), (offset, line) -> {
+            StoredListing stored = mapper.readValue(line, StoredListing.class);
+            Slot latest = lookup(identityKey(stored.id(), stored.url()));
+            if (latest != null && latest.offset() == offset)
+                all.add(stored.toListing());
+        });
+        return all;
+    }
+
+    /**
+     * Every listing written at or after the given log offset, oldest first,
+     * including versions that a later line supersedes.
+     */
+    public synchronized List<Listing> loadFrom(long offset) throws IOException {
+        List<Listing> appended = new ArrayList<>();
+        forEachLine(offset, log.size(), (o, line) -> appended.add(mapper.readValue(line, StoredListing.class)
+                .toListing()));
+        return appended;
+    }
+
+    public synchronized long size() {
+        return live;
+    }
+
+    /** Length of the log; it only grows until a compaction rewrites it. */
+    public synchronized long logLength() throws IOException {
+        return log.size();
+    }
+
+    /**
+     * Identifies this version of the log. It changes when a compaction
+     * rewrites the log, and when the log's index had to be rebuilt and so
+     * nothing is known about earlier rewrites; a log offset kept elsewhere
+     * is only valid while the id is the same.
+     */
+    public synchronized long logId() {
+        return logId;
+    }
+
+    /** Number of lines in the log. */
+    public synchronized long records() {
+        return records;
+    }
+
+    /** Writes the index for everything appended so far and compacts the log if it is mostly stale. */
+    public synchronized void flush() throws IOException {
+        log.force(false);
+        if (records >= COMPACT_MIN_RECORDS && records > 2 * live) {
+            compact();
+        } else if (!tail.isEmpty() || indexedLogLength != log.size()) {
+            writeIndex();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        log.close();
+    }
+
+    // --- Index ---
+
+    private Slot lookup(long key) {
+        Slot slot = tail.get(key);
+        if (slot != null || index == null)
+            return slot;
+
+        int lo = 0;
+        int hi = indexCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int pos = HEADER_BYTES + mid * ENTRY_BYTES;
+            long k = index.getLong(pos);
+            if (k < key) {
+                lo = mid + 1;
+            } else if (k > key) {
+                hi = mid - 1;
+            } else {
+                return new Slot(index.getLong(pos + 8), index.getInt(pos + 16));
+            }
+        }
+        return null;
+    }
+
+    private void index(StoredListing stored, Slot slot) {
+        tail.put(urlKey(stored.url()), slot);
+        if (stored.id() != null && !stored.id().isEmpty())
+            tail.put(idKey(stored.id()), slot);
+    }
+
+    private void loadIndex() throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) < HEADER_BYTES)
+            return;
+
+        ByteBuffer loaded = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        long logLength = loaded.getLong(8);
+        int count = loaded.getInt(32);
+        if (loaded.getInt(0) != INDEX_MAGIC || loaded.getInt(4) != INDEX_VERSION
+                || logLength > log.size() || loaded.capacity() != HEADER_BYTES + (long) count * ENTRY_BYTES) {
+            System.err.println("Ignoring stale listing index, rebuilding from " + logPath);
+            return;
+        }
+        index = loaded;
+        indexCount = count;
+        indexedLogLength = logLength;
+        records = loaded.getLong(16);
+        live = loaded.getLong(24);
+        logId = loaded.getLong(36);
+    }
+
+    private void replay(long from) throws IOException {
+        forEachLine(from, log.size(), (offset, line) -> {
+            StoredListing stored = mapper.readValue(line, StoredListing.class);
+            records++;
+            if (lookup(identityKey(stored.id(), stored.url())) == null)
+                live++;
+            index(stored, new Slot(offset, contentHash(stored.toListing())));
+        });
+    }
+
+    private void writeIndex() throws IOException {
+        long[] tailKeys = tail.keySet().stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(tailKeys);
+
+        // Merge the (sorted) loaded entries with the (sorted) tail entries; the tail wins on equal keys
+        int maxEntries = indexCount + tailKeys.length;
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + maxEntries * ENTRY_BYTES);
+        out.position(HEADER_BYTES);
+        int i = 0;
+        int j = 0;
+        int written = 0;
+        while (i < indexCount || j < tailKeys.length) {
+            long loadedKey = i < indexCount ? index.getLong(HEADER_BYTES + i * ENTRY_BYTES) : Long.MAX_VALUE;
+            if (j < tailKeys.length && (i >= indexCount || tailKeys[j] <= loadedKey)) {
+                Slot slot = tail.get(tailKeys[j]);
+                out.putLong(tailKeys[j]).putLong(slot.offset()).putInt(slot.contentHash());
+                if (i < indexCount && tailKeys[j] == loadedKey)
+                    i++;
+                j++;
+            } else {
+                int pos = HEADER_BYTES + i * ENTRY_BYTES;
+                out.putLong(loadedKey).putLong(index.getLong(pos + 8)).putInt(index.getInt(pos + 16));
+                i++;
+            }
+            written++;
+        }
+
+        out.putInt(0, INDEX_MAGIC).putInt(4, INDEX_VERSION).putLong(8, log.size())
+                .putLong(16, records).putLong(24, live).putInt(32, written).putLong(36, logId);
+        out.limit(HEADER_BYTES + written * ENTRY_BYTES).position(0);
+
+        Path tmp = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                ch.write(out);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        tail.clear();
+        index = null;
+        loadIndex();
+    }
+
+    /** Rewrites the log with only the latest line per ad, then rebuilds the index from it. */
+    private void compact() throws IOException {
+        long before = records;
+        Path tmp = logPath.resolveSibling(LOG_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            forEachLine(0, log.size(), (offset, line) -> {
+                StoredListing stored = mapper.readValue(line, StoredListing.class);
+                Slot latest = lookup(identityKey(stored.id(), stored.url()));
+                if (latest != null && latest.offset() == offset) {
+                    ByteBuffer buf = ByteBuffer.allocate(line.length + 1);
+                    buf.put(line).put((byte) '\n').flip();
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                }
+            });
+            out.force(true);
+        }
+
+        log.close();
+        Files.move(tmp, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        index = null;
+        indexCount = 0;
+        indexedLogLength = 0;
+        tail.clear();
+        records = 0;
+        live = 0;
+        logId = ThreadLocalRandom.current().nextLong();
+        replay(0);
+        writeIndex();
+        System.out.println("Compacted listing store: " + before + " -> " + records + " records.");
+    }
+
+    // --- Log reading ---
+
+    @FunctionalInterface
+    private interface LineVisitor {
+        void accept(long offset, byte[] line) throws IOException;
+    }
+
+    private void forEachLine(long from, long to, LineVisitor visitor) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long pos = from;
+        long lineStart = from;
+        while (pos < to) {
+            buf.clear();
+            int n = log.read(buf, pos);
+            if (n <= 0)
+                break;
+            byte[] chunk = buf.array();
+            int start = 0;
+            for (int k = 0; k < n; k++) {
+                if (chunk[k] == '\n') {
+                    line.write(chunk, start, k - start);
+                    if (line.size() > 0)
+                        visitor.accept(lineStart, line.toByteArray());
+                    line.reset();
+                    start = k + 1;
+                    lineStart = pos + k + 1;
+                }
+            }
+            line.write(chunk, start, n - start);
+            pos += n;
+        }
+        // A trailing partial line is a torn write from a crash; it is ignored and overwritten later
+        if (line.size() > 0)
+            log.truncate(lineStart);
+    }
+
+    private StoredListing readRecord(long offset) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8 * 1024);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long pos = offset;
+        while (true) {
+            buf.clear();
+            int n = log.read(buf, pos);
+            if (n <= 0)
+                break;
+            byte[] chunk = buf.array();
+            for (int k = 0; k < n; k++) {
+                if (chunk[k] == '\n') {
+                    line.write(chunk, 0, k);
+                    return mapper.readValue(line.toByteArray(), StoredListing.class);
+                }
+            }
+            line.write(chunk, 0, n);
+            pos += n;
+        }
+        return mapper.readValue(line.toByteArray(), StoredListing.class);
+    }
+
+    // --- Keys ---
+
+    private static long identityKey(String id, String url) {
+        return id != null && !id.isEmpty() ? idKey(id) : urlKey(url);
+    }
+
+    private static long urlKey(String url) {
+        return fnv1a64("u:", url);
+    }
+
+    private static long idKey(String id) {
+        return fnv1a64("i:", id);
+    }
+
+    private static long fnv1a64(String prefix, String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < prefix.length(); i++) {
+            h = (h ^ prefix.charAt(i)) * 0x100000001b3L;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
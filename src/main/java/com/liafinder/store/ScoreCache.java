@@ -0,0 +1,135 @@
+package com.liafinder.store;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.Listing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Scores of listings already ranked, in {@code <data_dir>/score-cache.bin}, so
+ * a run only scores listings that are new, changed, or were scored under a
+ * different config. The key combines a hash of the listing's title and
+ * description, the only fields the score depends on, with the scoring hash of
+ * the profile. The least recently used entries are dropped beyond the
+ * configured capacity.
+ */
+public class ScoreCache {
+    private static final String CACHE_FILE = "score-cache.bin";
+    private static final int MAGIC = 0x4C534343; // "LSCC"
+    // Bump when RankingService scores the same text and config differently
+    private static final int VERSION = 2;
+    private static final int DEFAULT_CAPACITY = 100_000;
+
+    private final Path file;
+    private final Map<Long, Double> scores;
+    private boolean dirty;
+
+    /** Returns null when caching is disabled in the config. */
+    public static ScoreCache open(AppConfig cfg) {
+        AppConfig.CacheConfig c = cfg.cache();
+        if (c == null || !c.enabled())
+            return null;
+        int capacity = c.scoreEntries() > 0 ? c.scoreEntries() : DEFAULT_CAPACITY;
+        ScoreCache cache = new ScoreCache(Paths.get(cfg.dataDir(), CACHE_FILE), capacity);
+        if (Files.exists(cache.file)) {
+            try {
+                cache.load();
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable score cache: " + e.getMessage());
+                cache.scores.clear();
+            }
+        }
+        return cache;
+    }
+
+    public ScoreCache(Path file, int capacity) {
+        this.file = file;
+        this.scores = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Cache key of the listing's text under the given scoring hash. */
+    public static long key(Listing l, long scoringHash) {
+        long h = 0xcbf29ce484222325L ^ scoringHash;
+        h = fnv1a64(h, l.title);
+        h = (h ^ 0xFFFF) * 0x100000001b3L; // separator, so moving text between the fields changes the key
+        h = fnv1a64(h, l.description);
+        h = (h ^ 0xFFFF) * 0x100000001b3L;
+        h = fnv1a64(h, l.company); // Target companies score by employer
+        return h;
+    }
+
+    /** The cached score, or null; a hit makes the entry the most recently used. */
+    public synchronized Double get(long key) {
+        return scores.get(key);
+    }
+
+    public synchronized void put(long key, double score) {
+        scores.put(key, score);
+        dirty = true;
+    }
+
+    public synchronized int size() {
+        return scores.size();
+    }
+
+    /** Writes the entries, least recently used first, if anything changed. The file is replaced atomically. */
+    public synchronized void save() throws IOException {
+        if (!dirty)
+            return;
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), CACHE_FILE, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(scores.size());
+                for (Map.Entry<Long, Double> e : scores.entrySet()) {
+                    out.writeLong(e.getKey());
+                    out.writeDouble(e.getValue());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("not a score cache: " + file);
+            // Scores of an older scoring version are simply not reused
+            if (in.readInt() != VERSION)
+                return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                scores.put(in.readLong(), in.readDouble());
+            }
+        }
+    }
+
+    private static long fnv1a64(long h, String value) {
+        if (value == null)
+            return h;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
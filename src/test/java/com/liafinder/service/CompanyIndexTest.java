@@ -0,0 +1,99 @@
+package com.liafinder.service;
+
+import com.liafinder.model.Company;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CompanyIndexTest {
+    private static final Company EXAMPLE = company("Example Product Company AB", "https://www.example.com/careers",
+            List.of("Java", "Kotlin", "Spring Boot"));
+    private static final Company NORDIC = company("Nordic Systems", "careers.nordsys.co.uk", null);
+
+    private final CompanyIndex index = CompanyIndex.of(List.of(EXAMPLE, NORDIC), List.of("java", "spring boot"));
+
+    private static Company company(String name, String website, List<String> hints) {
+        return new Company(name, "Stockholm", website, null, null, hints, null, null, null);
+    }
+
+    @Test
+    public void keyDropsLegalSuffixesAndPunctuation() {
+        assertEquals("exampleconsulting", CompanyIndex.key("Example Consulting AB"));
+        assertEquals("exampleconsulting", CompanyIndex.key("ExampleConsulting"));
+        assertEquals("acme", CompanyIndex.key("ACME Sverige AB (publ)"));
+    }
+
+    @Test
+    public void keyFoldsCaseAndDiacritics() {
+        assertEquals("akerstrom", CompanyIndex.key("Åkerström HB"));
+    }
+
+    @Test
+    public void keyOfOnlySuffixesKeepsThem() {
+        assertEquals("groupab", CompanyIndex.key("Group AB"));
+        assertEquals("", CompanyIndex.key(" - "));
+    }
+
+    @Test
+    public void domainKeyIsTheRegisteredName() {
+        assertEquals("example", CompanyIndex.domainKey("https://www.example.com/careers"));
+        assertEquals("example", CompanyIndex.domainKey("careers.example.com"));
+        assertEquals("example", CompanyIndex.domainKey("https://jobs.example.co.uk/"));
+        assertEquals("example", CompanyIndex.domainKey("example.se"));
+        assertEquals("localhost", CompanyIndex.domainKey("http://localhost:8080"));
+    }
+
+    @Test
+    public void domainKeyOfNoWebsiteIsNull() {
+        assertNull(CompanyIndex.domainKey(null));
+        assertNull(CompanyIndex.domainKey(" "));
+        assertNull(CompanyIndex.domainKey("not a url"));
+    }
+
+    @Test
+    public void exactNameMatches() {
+        CompanyIndex.Match m = index.find("Example Product Company");
+        assertSame(EXAMPLE, m.company());
+        assertEquals(List.of("Java", "Spring Boot"), m.hints());
+    }
+
+    @Test
+    public void websiteDomainMatches() {
+        assertSame(EXAMPLE, index.find("Example AB").company());
+        assertSame(NORDIC, index.find("Nordsys Ltd").company());
+    }
+
+    @Test
+    public void closeSpellingMatches() {
+        assertSame(EXAMPLE, index.find("Exampel Product Company AB").company());
+    }
+
+    @Test
+    public void unknownEmployerDoesNotMatch() {
+        assertNull(index.find("Volvo Cars AB"));
+        assertNull(index.find("AB"));
+        assertNull(index.find("Ex"));
+        assertNull(index.find(null));
+    }
+
+    @Test
+    public void repeatedLookupsGiveTheSameAnswer() {
+        for (int i = 0; i < 20_000; i++) {
+            index.find("Employer " + i);
+        }
+        assertSame(EXAMPLE, index.find("Exampel Product Company AB").company());
+        assertNull(index.find("Volvo Cars AB"));
+    }
+
+    @Test
+    public void missingFileIsEmpty() {
+        CompanyIndex empty = CompanyIndex.load(Path.of("no-such-dir", CompanyIndex.DEFAULT_FILE), List.of());
+        assertEquals(0, empty.size());
+        assertNull(empty.find("Example Product Company AB"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DateExtractorTest {
+    // October 2026 to March 2027, as in config.yaml
+    private final DateExtractor dates = DateExtractor.of(new AppConfig.LiaConfig("2026-10", "2026-03-12", null));
+
+    private DateExtractor.Mentions scan(String text) {
+        DateExtractor.Mentions m = dates.newMentions();
+        m.scan(text);
+        return m;
+    }
+
+    @Test
+    public void endBeforeStartIsInTheNextYear() {
+        assertEquals(YearMonth.of(2026, 10), dates.start());
+        assertEquals(YearMonth.of(2027, 3), dates.end());
+    }
+
+    @Test
+    public void missingEndIsTheStartMonth() {
+        DateExtractor single = DateExtractor.of(new AppConfig.LiaConfig("2026-10-01", null, null));
+        assertEquals(YearMonth.of(2026, 10), single.end());
+    }
+
+    @Test
+    public void missingOrInvalidStartDisablesDates() {
+        assertNull(DateExtractor.of(null));
+        assertNull(DateExtractor.of(new AppConfig.LiaConfig(null, "2027-03", null)));
+        assertNull(DateExtractor.of(new AppConfig.LiaConfig("autumn", null, null)));
+    }
+
+    @Test
+    public void autumnTermCoversTheStart() {
+        DateExtractor.Mentions m = scan("LIA-praktik under HT26");
+        assertTrue(m.yearInPeriod());
+        assertTrue(m.start());
+        assertFalse(m.end());
+    }
+
+    @Test
+    public void springTermCoversTheEnd() {
+        DateExtractor.Mentions m = scan("Praktik VT 2027");
+        assertTrue(m.yearInPeriod());
+        assertFalse(m.start());
+        assertTrue(m.end());
+    }
+
+    @Test
+    public void weekRangeCoversStartAndEnd() {
+        assertTrue(scan("Praktik v.42–10").start());
+        assertTrue(scan("Praktik v.42–10").end());
+        assertTrue(scan("vecka 42 - vecka 10").end());
+    }
+
+    @Test
+    public void numberAfterWeekWithoutDashIsNotAWeek() {
+        DateExtractor.Mentions m = scan("Start v.42, 10 platser");
+        assertTrue(m.start());
+        assertFalse(m.end());
+    }
+
+    @Test
+    public void isoDatesAndMonths() {
+        assertTrue(scan("Start 2026-10-12").start());
+        assertTrue(scan("Slut 2027-03").end());
+        assertFalse(scan("Start 2026-11-02").start());
+    }
+
+    @Test
+    public void phoneNumbersAreNotYears() {
+        assertFalse(scan("Ring 08-555 2026").yearInPeriod());
+        assertFalse(scan("Tel +46 8 555 2026").yearInPeriod());
+        assertFalse(scan("Ring 070-123 2025").tooEarly());
+    }
+
+    @Test
+    public void dottedDateKeepsItsYear() {
+        assertTrue(scan("Sista ansökningsdag 05.10.2026").yearInPeriod());
+    }
+
+    @Test
+    public void monthWithoutYearFallsInThePeriod() {
+        DateExtractor.Mentions m = scan("Start i oktober, slut i mars");
+        assertTrue(m.start());
+        assertTrue(m.end());
+        // September comes after the October start only in the following year, which is past the end
+        assertFalse(scan("Start i september").start());
+        assertFalse(scan("Start i september").end());
+    }
+
+    @Test
+    public void abbreviatedMonthNeedsAYear() {
+        assertFalse(scan("You may apply in Oct").start());
+        assertTrue(scan("Start Oct. 2026").start());
+    }
+
+    @Test
+    public void lastYearOnlyIsTooEarly() {
+        assertTrue(scan("LIA HT25").tooEarly());
+        assertFalse(scan("HT25 eller HT26").tooEarly());
+    }
+
+    @Test
+    public void utf8ScanAgreesWithStringScan() {
+        String[] texts = { "Praktik v.42–10", "Hösttermin 2026", "Start 2026-10-12", "Ring 08-555 2026" };
+        for (String text : texts) {
+            DateExtractor.Mentions chars = scan(text);
+            DateExtractor.Mentions bytes = dates.newMentions();
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            bytes.scanUtf8(utf8, 0, utf8.length);
+            assertEquals(text, chars.yearInPeriod(), bytes.yearInPeriod());
+            assertEquals(text, chars.start(), bytes.start());
+            assertEquals(text, chars.end(), bytes.end());
+        }
+    }
+
+    @Test
+    public void labelNamesTheMonth() {
+        assertEquals("October 2026", DateExtractor.label(YearMonth.of(2026, 10)));
+    }
+}
@@ -0,0 +1,94 @@
+package com.liafinder.service;
+
+import com.liafinder.config.AppConfig;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryPlannerTest {
+    private static final QueryPlanner.Paging MERGE = new QueryPlanner.Paging(true, 2, 0.2, 2);
+
+    @Test
+    public void quotedPhraseIsOneWord() {
+        assertEquals(Set.of("java", "spring boot", "lia"), QueryPlanner.words("Java \"Spring Boot\"  LIA"));
+    }
+
+    @Test
+    public void narrowerQueryGivesItsPagesToTheBroaderOne() {
+        List<QueryPlanner.Query> plan = QueryPlanner.plan(List.of("java lia", "java lia stockholm", "python"), MERGE);
+        assertEquals(List.of(new QueryPlanner.Query("java lia", 4), new QueryPlanner.Query("python", 2)), plan);
+    }
+
+    @Test
+    public void broadestCoveringQueryWins() {
+        List<QueryPlanner.Query> plan = QueryPlanner.plan(List.of("java lia spring", "java lia", "java"), MERGE);
+        assertEquals(List.of(new QueryPlanner.Query("java", 6)), plan);
+    }
+
+    @Test
+    public void equalWordSetsGoToTheFirst() {
+        List<QueryPlanner.Query> plan = QueryPlanner.plan(List.of("LIA java", "java lia"), MERGE);
+        assertEquals(List.of(new QueryPlanner.Query("LIA java", 4)), plan);
+    }
+
+    @Test
+    public void withoutMergingEveryQueryIsKept() {
+        QueryPlanner.Paging paging = new QueryPlanner.Paging(false, 3, 0, 1);
+        List<QueryPlanner.Query> plan = QueryPlanner.plan(List.of("java", "java lia"), paging);
+        assertEquals(List.of(new QueryPlanner.Query("java", 3), new QueryPlanner.Query("java lia", 3)), plan);
+    }
+
+    @Test
+    public void missingQuerySectionMeansOnePage() {
+        assertEquals(QueryPlanner.Paging.SINGLE_PAGE, QueryPlanner.Paging.of(null));
+        QueryPlanner.Paging paging = QueryPlanner.Paging.of(new AppConfig.QueryConfig(50, false, true, 0, 0.1, 0));
+        assertEquals(1, paging.maxPages());
+        assertEquals(1, paging.stalePages());
+    }
+
+    @Test
+    public void pagingStopsAtTheLastPage() {
+        QueryPlanner.Progress p = new QueryPlanner.Progress(new QueryPlanner.Query("java", 5), MERGE);
+        assertTrue(p.next(50, 50, 20, 20));
+        assertEquals(50, p.offset());
+        assertFalse(p.next(50, 30, 20, 20));
+    }
+
+    @Test
+    public void pagingStopsAtThePageBudget() {
+        QueryPlanner.Progress p = new QueryPlanner.Progress(new QueryPlanner.Query("java", 2), MERGE);
+        assertTrue(p.next(50, 50, 50, 50));
+        assertFalse(p.next(50, 50, 50, 50));
+    }
+
+    @Test
+    public void pagingStopsBelowTheMinimumYield() {
+        QueryPlanner.Progress p = new QueryPlanner.Progress(new QueryPlanner.Query("java", 5), MERGE);
+        assertFalse(p.next(50, 50, 9, 9));
+    }
+
+    @Test
+    public void pagingStopsAfterStalePages() {
+        QueryPlanner.Progress p = new QueryPlanner.Progress(new QueryPlanner.Query("java", 5), MERGE);
+        assertTrue(p.next(50, 50, 20, 0));
+        assertTrue(p.next(50, 50, 20, 5));
+        assertTrue(p.next(50, 50, 20, 0));
+        assertFalse(p.next(50, 50, 20, 0));
+    }
+
+    @Test
+    public void pagingStopsAtTheMaximumOffset() {
+        QueryPlanner.Paging paging = new QueryPlanner.Paging(false, 100, 0, 1);
+        QueryPlanner.Progress p = new QueryPlanner.Progress(new QueryPlanner.Query("java", 100), paging);
+        int pages = 1;
+        while (p.next(100, 100, 100, 100)) {
+            pages++;
+        }
+        assertEquals(QueryPlanner.MAX_OFFSET / 100 + 1, pages);
+    }
+}
@@ -0,0 +1,115 @@
+package com.liafinder.store;
+
+import com.liafinder.config.AppConfig;
+import com.liafinder.model.Listing;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.liafinder.store.ListingStoreTest.listing;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ListingIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AppConfig config() {
+        return new AppConfig(null, null, new AppConfig.OutputConfig(folder.getRoot().toString(), null, null), null,
+                null, null, null, null, null, null);
+    }
+
+    private Path dir() {
+        return folder.getRoot().toPath();
+    }
+
+    private static List<String> urls(List<Listing> listings) {
+        return listings.stream().map(l -> l.url).toList();
+    }
+
+    @Test
+    public void savedIndexLoadsTheSameDocumentsAndPostings() throws IOException {
+        AppConfig cfg = config();
+        int terms;
+        double titleLength;
+        double descriptionLength;
+        try (ListingStore store = new ListingStore(dir())) {
+            // Long enough descriptions for multi-byte varints in the token counts and posting gaps
+            store.put(listing("1", "https://ads/1", "Spring Boot och Kafka ".repeat(100) + "Göteborg"));
+            for (int i = 2; i <= 300; i++) {
+                store.put(listing(String.valueOf(i), "https://ads/" + i, "Praktik nummer " + i));
+            }
+            store.put(listing("301", "https://ads/301", "Spring Boot i Malmö"));
+            ListingIndex index = ListingIndex.open(cfg, store);
+            terms = index.termCount();
+            titleLength = index.averageTitleLength();
+            descriptionLength = index.averageDescriptionLength();
+        }
+
+        try (ListingStore store = new ListingStore(dir())) {
+            ListingIndex index = ListingIndex.open(cfg, store);
+            assertEquals(301, index.size());
+            assertEquals(terms, index.termCount());
+            assertEquals(titleLength, index.averageTitleLength(), 1e-9);
+            assertEquals(descriptionLength, index.averageDescriptionLength(), 1e-9);
+            assertEquals(List.of("https://ads/1", "https://ads/301"), urls(index.search("spring boot")));
+            assertEquals(List.of("https://ads/1"), urls(index.search("göteborg kafka")));
+            assertEquals(List.of("https://ads/300"), urls(index.search("praktik 300")));
+        }
+    }
+
+    @Test
+    public void editAfterSaveIsReplayedOnOpen() throws IOException {
+        AppConfig cfg = config();
+        try (ListingStore store = new ListingStore(dir())) {
+            store.put(listing("1", "https://ads/1", "Spring Boot"));
+            store.put(listing("2", "https://ads/2", "Kotlin"));
+            ListingIndex.open(cfg, store).save();
+            // Stored, but the run ends before the index is saved again
+            store.put(listing("1", "https://ads/1", "Quarkus"));
+        }
+
+        try (ListingStore store = new ListingStore(dir())) {
+            ListingIndex index = ListingIndex.open(cfg, store);
+            assertEquals(2, index.size());
+            assertEquals(List.of("https://ads/1"), urls(index.search("quarkus")));
+            assertTrue(index.search("spring").isEmpty());
+        }
+        // The replayed edit was saved, so a second open agrees
+        try (ListingStore store = new ListingStore(dir())) {
+            ListingIndex index = ListingIndex.open(cfg, store);
+            assertEquals(List.of("https://ads/1"), urls(index.search("quarkus")));
+            assertTrue(index.search("spring").isEmpty());
+        }
+    }
+
+    @Test
+    public void indexIsRebuiltAfterCompaction() throws IOException {
+        AppConfig cfg = config();
+        try (ListingStore store = new ListingStore(dir())) {
+            for (int ad = 0; ad < 10; ad++) {
+                store.put(listing("id" + ad, "https://ads/" + ad, "Spring Boot"));
+            }
+            ListingIndex.open(cfg, store).save();
+            for (int version = 0; version < 100; version++) {
+                for (int ad = 0; ad < 10; ad++) {
+                    store.put(listing("id" + ad, "https://ads/" + ad, "Quarkus version " + version));
+                }
+            }
+            store.flush();
+            assertEquals(10, store.records());
+        }
+
+        try (ListingStore store = new ListingStore(dir())) {
+            ListingIndex index = ListingIndex.open(cfg, store);
+            assertEquals(10, index.size());
+            assertEquals(10, index.search("quarkus 99").size());
+            assertTrue(index.search("spring").isEmpty());
+            assertTrue(index.search("quarkus 98").isEmpty());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.liafinder.store;
+
+import com.liafinder.model.Listing;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ListingStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static Listing listing(String id, String url, String description) {
+        Listing l = new Listing("Java LIA", "Example AB", "Stockholm", url, description, "jobtech");
+        l.id = id;
+        return l;
+    }
+
+    private Path dir() {
+        return folder.getRoot().toPath();
+    }
+
+    @Test
+    public void putGetAndReopen() throws IOException {
+        try (ListingStore store = new ListingStore(dir())) {
+            assertEquals(ListingStore.PutResult.NEW, store.put(listing("1", "https://ads/1", "Spring Boot")));
+            assertEquals(ListingStore.PutResult.NEW, store.put(listing("2", "https://ads/2", "Kotlin")));
+        }
+        try (ListingStore store = new ListingStore(dir())) {
+            assertEquals(2, store.size());
+            assertEquals("Spring Boot", store.get("https://ads/1").description);
+            assertEquals("1", store.get("https://ads/1").id);
+            assertTrue(store.containsUrl("https://ads/2"));
+            assertNull(store.get("https://ads/3"));
+        }
+    }
+
+    @Test
+    public void changedContentIsStoredAgain() throws IOException {
+        try (ListingStore store = new ListingStore(dir())) {
+            store.put(listing("1", "https://ads/1", "Spring Boot"));
+            assertEquals(ListingStore.PutResult.UNCHANGED, store.put(listing("1", "https://ads/1", "Spring Boot")));
+            assertEquals(ListingStore.PutResult.CHANGED, store.put(listing("1", "https://ads/1", "Quarkus")));
+            assertEquals(1, store.size());
+            assertEquals(2, store.records());
+            assertEquals("Quarkus", store.get("https://ads/1").description);
+        }
+    }
+
+    @Test
+    public void adKeepsItsIdUnderANewUrl() throws IOException {
+        try (ListingStore store = new ListingStore(dir())) {
+            store.put(listing("1", "https://ads/1", "Spring Boot"));
+            assertEquals(ListingStore.PutResult.CHANGED, store.put(listing("1", "https://ads/1b", "Spring Boot")));
+            assertEquals("Spring Boot", store.get("https://ads/1b").description);
+            assertEquals(ListingStore.PutResult.CHANGED, store.put(listing("1", "https://ads/1c", "Quarkus")));
+            assertEquals(1, store.size());
+            assertEquals(1, store.loadAll().size());
+        }
+        try (ListingStore store = new ListingStore(dir())) {
+            assertEquals(1, store.size());
+            List<Listing> all = store.loadAll();
+            assertEquals(1, all.size());
+            assertEquals("https://ads/1c", all.get(0).url);
+        }
+    }
+
+    @Test
+    public void linesAfterTheSavedIndexAreReplayed() throws IOException {
+        try (ListingStore store = new ListingStore(dir())) {
+            store.put(listing("1", "https://ads/1", "Spring Boot"));
+        }
+        Path idx = dir().resolve("listings.idx");
+        Path saved = dir().resolve("saved.idx");
+        Files.copy(idx, saved);
+        try (ListingStore store = new ListingStore(dir())) {
+            store.put(listing("1", "https://ads/1", "Quarkus"));
+            store.put(listing("2", "https://ads/2", "Kotlin"));
+        }
+        // As if the process had died before the index was written
+        Files.copy(saved, idx, StandardCopyOption.REPLACE_EXISTING);
+
+        try (ListingStore store = new ListingStore(dir())) {
+            assertEquals(2, store.size());
+            assertEquals(3, store.records());
+            assertEquals("Quarkus", store.get("https://ads/1").description);
+            assertEquals(ListingStore.PutResult.UNCHANGED, store.put(listing("2", "https://ads/2", "Kotlin")));
+        }
+    }
+
+    @Test
+    public void tornLastLineIsDropped() throws IOException {
+        long length;
+        try (ListingStore store = new ListingStore(dir())) {
+            store.put(listing("1", "https://ads/1", "Spring Boot"));
+            length = store.logLength();
+        }
+        Files.delete(dir().resolve("listings.idx"));
+        byte[] torn = "{\"id\":\"2\",\"url\":\"https://ads/".getBytes(StandardCharsets.UTF_8);
+        Files.write(dir().resolve("listings.log"), torn, StandardOpenOption.APPEND);
+
+        try (ListingStore store = new ListingStore(dir())) {
+            assertEquals(length, store.logLength());
+            assertEquals(1, store.size());
+            assertFalse(store.containsUrl("https://ads/2"));
+            assertEquals(ListingStore.PutResult.NEW, store.put(listing("2", "https://ads/2", "Kotlin")));
+        }
+        try (ListingStore store = new ListingStore(dir())) {
+            assertEquals(2, store.size());
+            assertEquals("Kotlin", store.get("https://ads/2").description);
+        }
+    }
+
+    @Test
+    public void mostlyStaleLogIsCompacted() throws IOException {
+        long compactedId;
+        try (ListingStore store = new ListingStore(dir())) {
+            for (int version = 0; version < 100; version++) {
+                for (int ad = 0; ad < 10; ad++) {
+                    store.put(listing("id" + ad, "https://ads/" + ad, "version " + version));
+                }
+            }
+            assertEquals(1000, store.records());
+            long before = store.logLength();
+            long logId = store.logId();
+            store.flush();
+            assertEquals(10, store.records());
+            assertTrue(store.logLength() < before / 50);
+            assertNotEquals(logId, store.logId());
+            compactedId = store.logId();
+        }
+        try (ListingStore store = new ListingStore(dir())) {
+            assertEquals(compactedId, store.logId());
+            assertEquals(10, store.size());
+            assertEquals(10, store.records());
+            List<Listing> all = store.loadAll();
+            assertEquals(10, all.size());
+            assertEquals("https://ads/0", all.get(0).url);
+            assertEquals("version 99", store.get("https://ads/9").description);
+            assertEquals(ListingStore.PutResult.UNCHANGED, store.put(listing("id3", "https://ads/3", "version 99")));
+        }
+    }
+}